@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.5.0"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.swiftcart"
@@ -30,16 +31,61 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.springframework.kafka:spring-kafka")
 	implementation("org.springframework.boot:spring-boot-starter-data-redis")
+	implementation("org.postgresql:postgresql")
+	implementation("com.github.ben-manes.caffeine:caffeine")
 	compileOnly("org.projectlombok:lombok")
 	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
-	runtimeOnly("org.postgresql:postgresql")
 	annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
 	annotationProcessor("org.projectlombok:lombok")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testImplementation("org.springframework.kafka:spring-kafka-test")
+	testImplementation("org.springframework.boot:spring-boot-testcontainers")
+	testImplementation("org.testcontainers:junit-jupiter")
+	testImplementation("org.testcontainers:postgresql")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+	jmh("org.mockito:mockito-core")
+	jmh("org.testcontainers:testcontainers")
 }
 
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("load")
+	}
+}
+
+// End-to-end load and oversell harness (needs Docker): ./gradlew loadTest -Pload.orders=50000 -Pload.mix=zipf
+// Every -Pload.* property is passed on as a system property; the summary lands in build/load-test
+tasks.register<Test>("loadTest") {
+	group = "verification"
+	description = "Runs the end-to-end order load test against embedded Kafka"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("load")
+	}
+	maxHeapSize = "2g"
+	testLogging.showStandardStreams = true
+	outputs.upToDateWhen { false }
+	systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+}
+
+tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
+	// Logs a stack trace whenever a virtual thread blocks while pinned to its carrier
+	jvmArgs("-Djdk.tracePinnedThreads=short")
+}
+
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh (-PjmhIncludes=Codec to pick some).
+// Results are written as JSON so runs of different commits can be compared
+jmh {
+	jmhVersion = "1.37"
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+	warmupIterations = 3
+	iterations = 5
+	fork = 1
+	findProperty("jmhIncludes")?.let { includes.set(listOf(it.toString())) }
+}
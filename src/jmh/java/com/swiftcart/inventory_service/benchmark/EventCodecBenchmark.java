@@ -0,0 +1,87 @@
+package com.swiftcart.inventory_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.swiftcart.inventory_service.codec.InventoryEventCodec;
+import com.swiftcart.inventory_service.dto.InventoryEvent;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// JSON encoding of the outbox payload and decoding of incoming orders, per event
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventCodecBenchmark {
+
+    @Param({"1", "10"})
+    public int items;
+
+    private InventoryEventCodec codec;
+    private ObjectWriter orderWriter;
+    private ObjectReader orderReader;
+    private InventoryEvent inventoryEvent;
+    private byte[] inventoryEventBytes;
+    private OrderCreatedEvent orderCreatedEvent;
+    private byte[] orderCreatedEventBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Same settings as the application's ObjectMapper
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new InventoryEventCodec(objectMapper);
+        orderWriter = objectMapper.writerFor(OrderCreatedEvent.class);
+        orderReader = objectMapper.readerFor(OrderCreatedEvent.class);
+
+        List<InventoryEvent.OrderItem> inventoryItems = new ArrayList<>();
+        List<OrderCreatedEvent.OrderItem> orderItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            inventoryItems.add(new InventoryEvent.OrderItem(1000L + i, 2));
+            orderItems.add(new OrderCreatedEvent.OrderItem(1000L + i, 2));
+        }
+        String requestId = UUID.randomUUID().toString();
+        inventoryEvent = new InventoryEvent(1, "STOCK_RESERVED", requestId, 16L, inventoryItems,
+                OffsetDateTime.now(), "SUCCESS", null);
+        inventoryEventBytes = codec.encode(inventoryEvent);
+        orderCreatedEvent = new OrderCreatedEvent(1, "ORDER_CREATED", requestId, 16L, orderItems, LocalDateTime.now());
+        orderCreatedEventBytes = orderWriter.writeValueAsBytes(orderCreatedEvent);
+    }
+
+    @Benchmark
+    public byte[] encodeInventoryEvent() throws Exception {
+        return codec.encode(inventoryEvent);
+    }
+
+    @Benchmark
+    public InventoryEvent decodeInventoryEvent() throws Exception {
+        return codec.decode(inventoryEventBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeOrderCreatedEvent() throws Exception {
+        return orderWriter.writeValueAsBytes(orderCreatedEvent);
+    }
+
+    @Benchmark
+    public OrderCreatedEvent decodeOrderCreatedEvent() throws Exception {
+        return orderReader.readValue(orderCreatedEventBytes);
+    }
+}
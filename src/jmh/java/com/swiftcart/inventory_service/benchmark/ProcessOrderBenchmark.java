@@ -0,0 +1,109 @@
+package com.swiftcart.inventory_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.swiftcart.inventory_service.codec.InventoryEventCodec;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.repository.OrderEventLogRepository;
+import com.swiftcart.inventory_service.repository.OutboxEventRepository;
+import com.swiftcart.inventory_service.service.BatchReservationResult;
+import com.swiftcart.inventory_service.service.IdempotencyService;
+import com.swiftcart.inventory_service.service.InventoryService;
+import com.swiftcart.inventory_service.service.OrderPipelineMetrics;
+import com.swiftcart.inventory_service.service.ProductCatalogCache;
+import com.swiftcart.inventory_service.service.RedisCircuitBreaker;
+import com.swiftcart.inventory_service.service.StockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+// The service's own work per order (validation, event and outbox row building, encoding) with Redis,
+// the repositories and idempotency stubbed out, so changes to that code show up undiluted by I/O
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProcessOrderBenchmark {
+
+    @Param({"1", "10"})
+    public int itemsPerOrder;
+
+    private InventoryService inventoryService;
+    private OrderCreatedEvent event;
+
+    @Setup
+    public void setUp() {
+        StockService stockService = stub(StockService.class);
+        IdempotencyService idempotencyService = stub(IdempotencyService.class);
+        RedisCircuitBreaker redisCircuitBreaker = stub(RedisCircuitBreaker.class);
+        ProductCatalogCache productCatalogCache = stub(ProductCatalogCache.class);
+        InventoryRepository inventoryRepository = stub(InventoryRepository.class);
+        when(idempotencyService.claim(anyString())).thenReturn(true);
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+        when(productCatalogCache.findUnknown(anyCollection())).thenReturn(Set.of());
+        when(stockService.reserveStockBatch(anyList())).thenReturn(new BatchReservationResult(true, List.of()));
+        // One updated row per product, as the guarded decrement reports when the database covers the order
+        when(inventoryRepository.decrementStock(anyMap())).thenAnswer(invocation -> {
+            Map<Long, Integer> updated = new HashMap<>();
+            invocation.<Map<Long, Integer>>getArgument(0).keySet().forEach(productId -> updated.put(productId, 1));
+            return updated;
+        });
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        inventoryService = new InventoryService(
+                stub(OrderEventLogRepository.class),
+                inventoryRepository,
+                stub(OutboxEventRepository.class),
+                stockService,
+                idempotencyService,
+                redisCircuitBreaker,
+                productCatalogCache,
+                new InventoryEventCodec(objectMapper),
+                stub(TransactionTemplate.class),
+                stub(ApplicationEventPublisher.class),
+                new OrderPipelineMetrics(new SimpleMeterRegistry()));
+
+        List<OrderCreatedEvent.OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < itemsPerOrder; i++) {
+            items.add(new OrderCreatedEvent.OrderItem(1000L + i, 1));
+        }
+        event = new OrderCreatedEvent(1, "ORDER_CREATED", "request", 16L, items, LocalDateTime.now());
+    }
+
+    @Benchmark
+    public OrderCreatedEvent processOrderCreatedEvent() {
+        inventoryService.processOrderCreatedEvent(event);
+        return event;
+    }
+
+    // Stub-only mocks keep no invocation history, so they neither slow down nor fill up the heap over a run
+    private static <T> T stub(Class<T> type) {
+        return Mockito.mock(type, Mockito.withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,122 @@
+package com.swiftcart.inventory_service.benchmark;
+
+import com.swiftcart.inventory_service.config.RedisConfig;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import com.swiftcart.inventory_service.service.BatchReservationResult;
+import com.swiftcart.inventory_service.service.StockReplica;
+import com.swiftcart.inventory_service.service.StockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Reserves the items of one order in Redis, item by item with the single-item script versus one
+// batch script call, and for a poll of orders with the multi-order script. Uses the Redis given by
+// -Dbenchmark.redis.host/port, or starts one in a container.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class StockReservationBenchmark {
+    private static final int PRODUCTS = 1_000;
+    private static final int ORDERS_PER_POLL = 50;
+
+    @Param({"1", "5", "20"})
+    public int itemsPerOrder;
+
+    private GenericContainer<?> redis;
+    private AnnotationConfigApplicationContext context;
+    private StockService stockService;
+    private List<List<OrderCreatedEvent.OrderItem>> orders;
+
+    @Setup(Level.Trial)
+    public void startRedis() {
+        String host = System.getProperty("benchmark.redis.host");
+        int port = Integer.getInteger("benchmark.redis.port", 6379);
+        if (host == null) {
+            redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+            redis.start();
+            host = redis.getHost();
+            port = redis.getMappedPort(6379);
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.data.redis.host", host);
+        properties.put("spring.data.redis.port", port);
+        context = new AnnotationConfigApplicationContext();
+        // Boot's conversions for the @Value fields (durations, comma-separated sets)
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(RedisConfig.class, StockReplica.class, StockService.class);
+        context.refresh();
+        stockService = context.getBean(StockService.class);
+
+        orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS_PER_POLL; i++) {
+            List<OrderCreatedEvent.OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < itemsPerOrder; j++) {
+                items.add(new OrderCreatedEvent.OrderItem((long) ((i * itemsPerOrder + j) % PRODUCTS + 1), 1));
+            }
+            orders.add(items);
+        }
+    }
+
+    // Enough stock that no iteration runs out, so every call takes the successful path
+    @Setup(Level.Iteration)
+    public void fillStock() {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (long productId = 1; productId <= PRODUCTS; productId++) {
+            stock.put(productId, Integer.MAX_VALUE / 2);
+        }
+        stockService.loadStock(stock, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopRedis() {
+        context.close();
+        if (redis != null) {
+            redis.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean singleItemScriptPerItem() {
+        boolean reserved = true;
+        for (OrderCreatedEvent.OrderItem item : orders.get(0)) {
+            reserved &= stockService.reserveStock(item.getProductId(), item.getQuantity());
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public BatchReservationResult batchScriptPerOrder() {
+        return stockService.reserveStockBatch(orders.get(0));
+    }
+
+    // One call for a whole poll of orders; divide the score by ORDERS_PER_POLL to compare per order
+    @Benchmark
+    public List<BatchReservationResult> ordersScriptPerPoll() {
+        return stockService.reserveStockForOrders(orders);
+    }
+}
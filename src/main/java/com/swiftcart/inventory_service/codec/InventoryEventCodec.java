@@ -0,0 +1,35 @@
+package com.swiftcart.inventory_service.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.swiftcart.inventory_service.dto.InventoryEvent;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Encodes InventoryEvent straight to the bytes stored in the outbox and sent to Kafka as-is.
+// The writer and reader are built once and are thread-safe; Jackson recycles its buffers per thread.
+@Component
+public class InventoryEventCodec {
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    public InventoryEventCodec(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(InventoryEvent.class);
+        this.reader = objectMapper.readerFor(InventoryEvent.class);
+    }
+
+    public byte[] encode(InventoryEvent event) throws JsonProcessingException {
+        // The event version selects the wire format; version 1 is UTF-8 JSON
+        if (event.getVersion() != 1) {
+            throw new IllegalArgumentException("Unsupported InventoryEvent version: " + event.getVersion());
+        }
+        return writer.writeValueAsBytes(event);
+    }
+
+    public InventoryEvent decode(byte[] payload) throws IOException {
+        return reader.readValue(payload);
+    }
+}
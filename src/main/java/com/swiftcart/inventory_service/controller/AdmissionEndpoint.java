@@ -0,0 +1,25 @@
+package com.swiftcart.inventory_service.controller;
+
+import com.swiftcart.inventory_service.service.AdmissionControlService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/admission: current admission limit, paused partitions and the signals behind them
+@Component
+@Endpoint(id = "admission")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true")
+public class AdmissionEndpoint {
+
+    private final AdmissionControlService admissionControlService;
+
+    @ReadOperation
+    public Map<String, Object> admission() {
+        return admissionControlService.state();
+    }
+}
@@ -0,0 +1,45 @@
+package com.swiftcart.inventory_service.controller;
+
+import com.swiftcart.inventory_service.service.OrderTraceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DurationFormat;
+import org.springframework.format.annotation.DurationFormat.Style;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/logging")
+@RequiredArgsConstructor
+public class LoggingAdminController {
+
+    private final OrderTraceService orderTraceService;
+
+    // Full-detail logging (DEBUG included) for one orderId or requestId, for at most an hour
+    @PostMapping("/trace")
+    public ResponseEntity<Map<String, Object>> trace(
+            @RequestParam String id,
+            @RequestParam(defaultValue = "10m") @DurationFormat(Style.SIMPLE) Duration ttl
+    ) {
+        orderTraceService.trace(id, ttl);
+        return ResponseEntity.ok(Map.of("id", id, "traced", orderTraceService.traced()));
+    }
+
+    @DeleteMapping("/trace")
+    public ResponseEntity<Map<String, Object>> untrace(@RequestParam String id) {
+        orderTraceService.untrace(id);
+        return ResponseEntity.ok(Map.of("id", id, "traced", orderTraceService.traced()));
+    }
+
+    @GetMapping("/trace")
+    public ResponseEntity<Map<String, Duration>> traced() {
+        return ResponseEntity.ok(orderTraceService.traced());
+    }
+}
@@ -0,0 +1,45 @@
+package com.swiftcart.inventory_service.controller;
+
+import com.swiftcart.inventory_service.dto.ReplenishmentEvent;
+import com.swiftcart.inventory_service.service.ReplenishmentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/inventory/replenishments")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplenishmentController {
+
+    private final ReplenishmentService replenishmentService;
+
+    // Bulk upload of receipts; answers once all of them are committed (repeated requestIds count once)
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> replenish(@RequestBody List<ReplenishmentEvent> receipts) {
+        Map<String, Object> status = new HashMap<>();
+        try {
+            replenishmentService.submitAll(receipts).join();
+            status.put("status", "APPLIED");
+            status.put("receipts", receipts.size());
+            return ResponseEntity.ok(status);
+        } catch (IllegalArgumentException e) {
+            status.put("status", "REJECTED");
+            status.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(status);
+        } catch (Exception e) {
+            log.error("Replenishment upload failed", e);
+            status.put("status", "FAILED");
+            status.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(status);
+        }
+    }
+}
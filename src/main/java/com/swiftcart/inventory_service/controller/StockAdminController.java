@@ -0,0 +1,89 @@
+package com.swiftcart.inventory_service.controller;
+
+import com.swiftcart.inventory_service.service.ProductCatalogCache;
+import com.swiftcart.inventory_service.service.ReplenishmentService;
+import com.swiftcart.inventory_service.service.StockWarmupService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/stock")
+@RequiredArgsConstructor
+@Slf4j
+public class StockAdminController {
+
+    private final StockWarmupService stockWarmupService;
+    private final ProductCatalogCache productCatalogCache;
+    private final ReplenishmentService replenishmentService;
+
+    @PostMapping("/warmup")
+    public ResponseEntity<Map<String, Object>> warmUp(@RequestParam(defaultValue = "false") boolean overwrite) {
+        Map<String, Object> status = new HashMap<>();
+        try {
+            StockWarmupService.WarmupResult result = stockWarmupService.warmUp(overwrite);
+            status.put("status", "DONE");
+            status.put("products", result.getProducts());
+            status.put("written", result.getWritten());
+            status.put("durationMs", result.getDurationMs());
+            return ResponseEntity.ok(status);
+        } catch (IllegalStateException e) {
+            status.put("status", "RUNNING");
+            status.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status);
+        } catch (Exception e) {
+            log.error("Stock warm-up failed", e);
+            status.put("status", "FAILED");
+            status.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(status);
+        }
+    }
+
+    // Nightly catalog-wide stock sync: the CSV body (productId,quantity per line) is streamed into Postgres with COPY
+    @PostMapping(value = "/catalog-sync", consumes = "text/csv")
+    public ResponseEntity<Map<String, Object>> syncCatalog(HttpServletRequest request) {
+        Map<String, Object> status = new HashMap<>();
+        try {
+            ReplenishmentService.CatalogSyncResult result = replenishmentService.syncCatalog(request.getReader());
+            status.put("status", "DONE");
+            status.put("rows", result.getRows());
+            status.put("changed", result.getChanged());
+            status.put("durationMs", result.getDurationMs());
+            return ResponseEntity.ok(status);
+        } catch (IllegalStateException e) {
+            status.put("status", "RUNNING");
+            status.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status);
+        } catch (Exception e) {
+            log.error("Catalog stock sync failed", e);
+            status.put("status", "FAILED");
+            status.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(status);
+        }
+    }
+
+    // For products added or removed directly in the database; without productIds the whole cache is evicted
+    @DeleteMapping("/product-cache")
+    public ResponseEntity<Map<String, Object>> evictProductCache(@RequestParam(required = false) List<Long> productIds) {
+        Map<String, Object> status = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            productCatalogCache.invalidateAll();
+            status.put("evicted", "ALL");
+        } else {
+            productCatalogCache.invalidate(productIds);
+            status.put("evicted", productIds.size());
+        }
+        return ResponseEntity.ok(status);
+    }
+}
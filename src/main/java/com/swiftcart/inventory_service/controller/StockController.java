@@ -0,0 +1,55 @@
+package com.swiftcart.inventory_service.controller;
+
+import com.swiftcart.inventory_service.dto.StockLookupRequest;
+import com.swiftcart.inventory_service.service.StockLookupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Bulk stock lookup. Quantities line up with productIds (-1 for unknown products); version changes
+// whenever the replica is updated and maxAgeMs bounds how old any returned quantity is
+@RestController
+@RequestMapping("/inventory/stock")
+@Slf4j
+public class StockController {
+
+    private final StockLookupService stockLookupService;
+    private final int maxIds;
+
+    public StockController(
+            StockLookupService stockLookupService,
+            @Value("${inventory.stock.lookup.max-ids:5000}") int maxIds
+    ) {
+        this.stockLookupService = stockLookupService;
+        this.maxIds = maxIds;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getStock(@RequestParam("ids") long[] productIds) {
+        return lookup(productIds);
+    }
+
+    // For id lists too long for a query string
+    @PostMapping("/lookup")
+    public ResponseEntity<?> lookupStock(@RequestBody StockLookupRequest request) {
+        return lookup(request.getProductIds());
+    }
+
+    private ResponseEntity<?> lookup(long[] productIds) {
+        if (productIds == null || productIds.length == 0 || productIds.length > maxIds) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Between 1 and " + maxIds + " productIds are required");
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ResponseEntity.ok(stockLookupService.lookup(productIds));
+    }
+}
@@ -0,0 +1,26 @@
+package com.swiftcart.inventory_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderStatusEvent {
+    public static final String ORDER_CONFIRMED = "ORDER_CONFIRMED";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+    public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
+
+    private int version = 1;
+    private String eventType;
+    private String requestId;
+    private Long orderId;
+    private OffsetDateTime ts;
+}
@@ -0,0 +1,34 @@
+package com.swiftcart.inventory_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+// A warehouse receipt: positive quantities added to each product's stock. Corrections that lower
+// stock go through the catalog sync, which sets absolute quantities
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReplenishmentEvent {
+    private int version = 1;
+    private String requestId;
+    private List<Item> items;
+    private OffsetDateTime ts;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Item {
+        private Long productId;
+        private Integer quantity;
+    }
+}
@@ -3,17 +3,21 @@ package com.swiftcart.inventory_service.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
-public class OrderEventLog {
+public class OrderEventLog implements Persistable<String> {
+    public static final String OUTCOME_RESERVED = "RESERVED";
+    public static final String OUTCOME_REJECTED = "REJECTED";
 
     @Id
     private String requestId;
@@ -23,4 +27,34 @@ public class OrderEventLog {
 
     @Column(nullable = false)
     private String eventType;
+
+    // Every processed request is logged, whether its stock was reserved or not (null on rows from before)
+    private String outcome;
+
+    // The id is assigned by us, so tell Spring Data to persist instead of merge (no SELECT before INSERT)
+    @Transient
+    private boolean newEntity = true;
+
+    public OrderEventLog(String requestId, Long orderId, String eventType, String outcome) {
+        this.requestId = requestId;
+        this.orderId = orderId;
+        this.eventType = eventType;
+        this.outcome = outcome;
+    }
+
+    @Override
+    public String getId() {
+        return requestId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
 }
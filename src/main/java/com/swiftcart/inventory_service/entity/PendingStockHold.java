@@ -0,0 +1,33 @@
+package com.swiftcart.inventory_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A stock hold whose creation in Redis failed or was skipped while Redis was down, kept until the
+// sweeper has created it
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pending_stock_hold")
+public class PendingStockHold {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    // Epoch milliseconds, kept from the original reservation
+    @Column(name = "deadline", nullable = false)
+    private long deadline;
+
+    // productId:quantity pairs, comma separated
+    @Column(name = "items", nullable = false, columnDefinition = "TEXT")
+    private String items;
+}
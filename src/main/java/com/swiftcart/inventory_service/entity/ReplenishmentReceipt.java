@@ -0,0 +1,29 @@
+package com.swiftcart.inventory_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+// Replenishment requestIds already applied to the inventory table, and released holds as
+// hold-release:{orderId}; inserted in the same transaction as their stock, so a redelivered receipt or
+// a retried release is never counted twice
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "replenishment_receipt")
+public class ReplenishmentReceipt {
+
+    @Id
+    @Column(name = "request_id")
+    private String requestId;
+
+    @Column(name = "received_at", nullable = false)
+    private OffsetDateTime receivedAt;
+}
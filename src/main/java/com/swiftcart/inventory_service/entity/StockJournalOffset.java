@@ -0,0 +1,25 @@
+package com.swiftcart.inventory_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Last write-behind journal entry applied to the inventory table, per journal stream
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_journal_offset")
+public class StockJournalOffset {
+
+    @Id
+    @Column(name = "stream")
+    private String stream;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private String lastEntryId;
+}
@@ -0,0 +1,40 @@
+package com.swiftcart.inventory_service.repository;
+
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.ObjIntConsumer;
+
+public interface InventoryRepositoryCustom {
+
+    // Guarded decrement of every product in one JDBC batch.
+    // Returns rows affected per productId: 1 if applied, 0 if stock was short or the product is unknown.
+    Map<Long, Integer> decrementStock(Map<Long, Integer> quantities);
+
+    // Unguarded; quantities may be negative (write-behind deltas)
+    void incrementStock(Map<Long, Integer> quantities);
+
+    // Reads current quantities straight from the database, bypassing the persistence context
+    Map<Long, Integer> findQuantities(Collection<Long> productIds);
+
+    // Streams every row through a server-side cursor; must run inside a transaction for Postgres to use one
+    void streamQuantities(int fetchSize, ObjIntConsumer<Long> consumer);
+
+    // Adds the deltas in one JDBC batch, creating unknown products with the delta as their stock
+    void upsertStock(Map<Long, Integer> deltas);
+
+    // Runs the sync on other connections while one of its own holds a Postgres advisory lock, so only one
+    // sync across all instances uses the shared staging table. Throws IllegalStateException if another holds it
+    <T> T withCatalogSyncLock(Callable<T> sync);
+
+    // Replaces the catalog staging table with CSV rows of productId,quantity via COPY. Returns the row count
+    long stageCatalog(Reader csv);
+
+    // Upper bound of the next chunk of at most chunkSize staged productIds after the given one, or null when done
+    Long nextStagedChunkEnd(long afterProductId, int chunkSize);
+
+    // Sets staged quantities for productIds in (fromExclusive, toInclusive], inserting new products.
+    // Returns the change applied per productId (new products: their whole quantity); unchanged rows are not written
+    Map<Long, Integer> mergeStagedChunk(long fromExclusive, long toInclusive);
+}
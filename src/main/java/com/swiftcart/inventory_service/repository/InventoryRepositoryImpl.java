@@ -0,0 +1,189 @@
+package com.swiftcart.inventory_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.ObjIntConsumer;
+
+@RequiredArgsConstructor
+public class InventoryRepositoryImpl implements InventoryRepositoryCustom {
+    private static final String DECREMENT_SQL =
+            "UPDATE inventory SET available_quantity = available_quantity - ? WHERE product_id = ? AND available_quantity >= ?";
+    private static final String INCREMENT_SQL =
+            "UPDATE inventory SET available_quantity = available_quantity + ? WHERE product_id = ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO inventory (product_id, available_quantity) VALUES (?, ?) "
+                    + "ON CONFLICT (product_id) DO UPDATE SET available_quantity = inventory.available_quantity + EXCLUDED.available_quantity";
+    // Unlogged: it is rebuilt from the upload on every sync, so it does not need to survive a crash
+    private static final String CREATE_STAGING_SQL =
+            "CREATE UNLOGGED TABLE IF NOT EXISTS inventory_catalog_staging (product_id BIGINT PRIMARY KEY, available_quantity INTEGER NOT NULL)";
+    // Session-level, so it is held across the chunk transactions and released if the instance dies
+    private static final String CATALOG_SYNC_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('inventory_catalog_sync'))";
+    private static final String CATALOG_SYNC_UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('inventory_catalog_sync'))";
+    // Old quantities are read under the row locks the update takes, so the returned change is exact
+    private static final String MERGE_UPDATE_SQL =
+            "UPDATE inventory i SET available_quantity = c.target FROM ("
+                    + "SELECT s.product_id, s.available_quantity AS target, cur.available_quantity AS current "
+                    + "FROM inventory_catalog_staging s JOIN inventory cur ON cur.product_id = s.product_id "
+                    + "WHERE s.product_id > :from AND s.product_id <= :to AND cur.available_quantity <> s.available_quantity "
+                    + "ORDER BY s.product_id FOR UPDATE OF cur) c "
+                    + "WHERE i.product_id = c.product_id RETURNING i.product_id, c.target - c.current AS delta";
+    private static final String MERGE_INSERT_SQL =
+            "INSERT INTO inventory (product_id, available_quantity) "
+                    + "SELECT s.product_id, s.available_quantity FROM inventory_catalog_staging s "
+                    + "WHERE s.product_id > :from AND s.product_id <= :to "
+                    + "AND NOT EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = s.product_id) "
+                    + "ON CONFLICT (product_id) DO NOTHING RETURNING product_id, available_quantity AS delta";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Long, Integer> decrementStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // Update rows in productId order so concurrent orders always lock them in the same order
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        int[] updated = jdbcTemplate.getJdbcTemplate().batchUpdate(DECREMENT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        })[0];
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            result.put(entries.get(i).getKey(), updated[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public void incrementStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INCREMENT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    @Override
+    public Map<Long, Integer> findQuantities(Collection<Long> productIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query(
+                "SELECT product_id, available_quantity FROM inventory WHERE product_id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds),
+                (RowCallbackHandler) rs -> {
+                    quantities.put(rs.getLong("product_id"), rs.getInt("available_quantity"));
+                });
+        return quantities;
+    }
+
+    @Override
+    public void streamQuantities(int fetchSize, ObjIntConsumer<Long> consumer) {
+        jdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT product_id, available_quantity FROM inventory",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong("product_id"), rs.getInt("available_quantity")));
+    }
+
+    @Override
+    public void upsertStock(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // Same productId order as decrementStock, so replenishment and reservations never deadlock
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getKey());
+            ps.setInt(2, entry.getValue());
+        });
+    }
+
+    @Override
+    public <T> T withCatalogSyncLock(Callable<T> sync) {
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<T>) connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(CATALOG_SYNC_LOCK_SQL)) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    throw new IllegalStateException("Catalog sync is already running");
+                }
+            }
+            try {
+                return sync.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new RuntimeException("Catalog sync failed", e);
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CATALOG_SYNC_UNLOCK_SQL);
+                }
+            }
+        });
+    }
+
+    @Override
+    public long stageCatalog(Reader csv) {
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_SQL);
+                statement.execute("TRUNCATE inventory_catalog_staging");
+            }
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY inventory_catalog_staging (product_id, available_quantity) FROM STDIN WITH (FORMAT csv)", csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read catalog upload", e);
+            }
+        });
+    }
+
+    @Override
+    public Long nextStagedChunkEnd(long afterProductId, int chunkSize) {
+        return jdbcTemplate.queryForObject(
+                "SELECT max(product_id) FROM (SELECT product_id FROM inventory_catalog_staging "
+                        + "WHERE product_id > :after ORDER BY product_id LIMIT :limit) chunk",
+                new MapSqlParameterSource("after", afterProductId).addValue("limit", chunkSize),
+                Long.class);
+    }
+
+    @Override
+    public Map<Long, Integer> mergeStagedChunk(long fromExclusive, long toInclusive) {
+        MapSqlParameterSource range = new MapSqlParameterSource("from", fromExclusive).addValue("to", toInclusive);
+        Map<Long, Integer> deltas = new HashMap<>();
+        RowCallbackHandler collect = rs -> deltas.put(rs.getLong("product_id"), rs.getInt("delta"));
+        jdbcTemplate.query(MERGE_UPDATE_SQL, range, collect);
+        jdbcTemplate.query(MERGE_INSERT_SQL, range, collect);
+        return deltas;
+    }
+}
@@ -2,10 +2,28 @@ package com.swiftcart.inventory_service.repository;
 
 import com.swiftcart.inventory_service.entity.OutboxEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
-    List<OutboxEvent> findByPublishedFalse();
+
+    // Rows locked by another instance are skipped, so replicas split the backlog instead of sharing it
+    @Query(value = "SELECT * FROM outbox_event WHERE published = false ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimUnpublished(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.published = true, e.version = e.version + 1 WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<UUID> ids);
+
+    long countByPublishedFalse();
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.published = false")
+    OffsetDateTime findOldestUnpublishedCreatedAt();
 }
@@ -0,0 +1,17 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.PendingStockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PendingStockHoldRepository extends JpaRepository<PendingStockHold, Long>, PendingStockHoldRepositoryCustom {
+
+    // Rows locked by another instance are skipped, so sweepers split the backlog instead of sharing it
+    @Query(value = "SELECT * FROM pending_stock_hold ORDER BY deadline LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PendingStockHold> claimBatch(@Param("limit") int limit);
+}
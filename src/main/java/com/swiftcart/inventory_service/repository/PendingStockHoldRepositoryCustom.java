@@ -0,0 +1,11 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.PendingStockHold;
+
+import java.util.Collection;
+
+public interface PendingStockHoldRepositoryCustom {
+
+    // Inserts the holds in one JDBC batch; orders already pending are left as they are
+    void insertAll(Collection<PendingStockHold> holds);
+}
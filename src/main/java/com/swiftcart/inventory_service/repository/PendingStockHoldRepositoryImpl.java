@@ -0,0 +1,30 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.PendingStockHold;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class PendingStockHoldRepositoryImpl implements PendingStockHoldRepositoryCustom {
+    private static final String INSERT_SQL =
+            "INSERT INTO pending_stock_hold (order_id, deadline, items) VALUES (?, ?, ?) ON CONFLICT (order_id) DO NOTHING";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(Collection<PendingStockHold> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        List<PendingStockHold> rows = new ArrayList<>(holds);
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SQL, rows, rows.size(), (ps, hold) -> {
+            ps.setLong(1, hold.getOrderId());
+            ps.setLong(2, hold.getDeadline());
+            ps.setString(3, hold.getItems());
+        });
+    }
+}
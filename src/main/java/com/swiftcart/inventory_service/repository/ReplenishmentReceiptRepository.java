@@ -0,0 +1,9 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.ReplenishmentReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReplenishmentReceiptRepository extends JpaRepository<ReplenishmentReceipt, String>, ReplenishmentReceiptRepositoryCustom {
+}
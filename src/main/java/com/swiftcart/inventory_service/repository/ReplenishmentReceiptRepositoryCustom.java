@@ -0,0 +1,10 @@
+package com.swiftcart.inventory_service.repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface ReplenishmentReceiptRepositoryCustom {
+
+    // Inserts the requestIds not recorded yet, in one JDBC batch. Returns the ones that were new
+    Set<String> claimNew(Collection<String> requestIds);
+}
@@ -0,0 +1,36 @@
+package com.swiftcart.inventory_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class ReplenishmentReceiptRepositoryImpl implements ReplenishmentReceiptRepositoryCustom {
+    private static final String CLAIM_SQL =
+            "INSERT INTO replenishment_receipt (request_id, received_at) VALUES (?, now()) ON CONFLICT (request_id) DO NOTHING";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public Set<String> claimNew(Collection<String> requestIds) {
+        Set<String> claimed = new LinkedHashSet<>();
+        if (requestIds.isEmpty()) {
+            return claimed;
+        }
+        List<String> ids = new ArrayList<>(requestIds);
+        // ON CONFLICT DO NOTHING reports 0 rows for ids already recorded
+        int[] inserted = jdbcTemplate.getJdbcTemplate().batchUpdate(CLAIM_SQL, ids, ids.size(),
+                (ps, requestId) -> ps.setString(1, requestId))[0];
+        for (int i = 0; i < ids.size(); i++) {
+            if (inserted[i] == 1) {
+                claimed.add(ids.get(i));
+            }
+        }
+        return claimed;
+    }
+}
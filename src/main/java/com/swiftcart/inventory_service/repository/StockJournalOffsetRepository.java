@@ -0,0 +1,20 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.StockJournalOffset;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StockJournalOffsetRepository extends JpaRepository<StockJournalOffset, String> {
+
+    // Serializes flushers across instances for the length of the flush transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM StockJournalOffset o WHERE o.stream = :stream")
+    Optional<StockJournalOffset> lockByStream(@Param("stream") String stream);
+}
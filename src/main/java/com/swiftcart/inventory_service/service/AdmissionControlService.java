@@ -0,0 +1,190 @@
+package com.swiftcart.inventory_service.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Backpressure for orders-events. The number of partitions consumed at once is an AIMD limit: it grows
+// by one per interval while consumer p99 stays under target, halves when p99 or Redis latency breach
+// their targets, and drops to zero (everything paused) while the Hikari pool has waiters, the outbox
+// backlog is over its bound, or Redis is down in write-behind mode. Paused partitions are still polled, so the group does not rebalance, and
+// their records wait in Kafka instead of timing out into the DLQ. Which partitions are active rotates
+// every interval, so a limit below the assignment slows every partition rather than starving some.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true")
+public class AdmissionControlService {
+    public static final String LISTENER_ID = "order-events";
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final OrderPipelineMetrics metrics;
+    private final OutboxEventPublisherService outboxEventPublisherService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final StockService stockService;
+    private final DataSource dataSource;
+    private final long targetP99Nanos;
+    private final double redisTargetP99Ms;
+    private final long maxOutboxBacklog;
+    private final double decreaseFactor;
+    private volatile int limit = Integer.MAX_VALUE;
+    private volatile int assigned;
+    private volatile int paused;
+    private volatile double lastP99Ms = -1;
+    private volatile String lastDecision = "start";
+    private volatile OffsetDateTime updatedAt;
+    private long tick;
+
+    public AdmissionControlService(
+            KafkaListenerEndpointRegistry listenerRegistry,
+            OrderPipelineMetrics metrics,
+            OutboxEventPublisherService outboxEventPublisherService,
+            RedisCircuitBreaker redisCircuitBreaker,
+            StockService stockService,
+            DataSource dataSource,
+            @Value("${inventory.admission.target-p99-ms:500}") long targetP99Ms,
+            @Value("${inventory.admission.redis-target-p99-ms:50}") double redisTargetP99Ms,
+            @Value("${inventory.admission.max-outbox-backlog:50000}") long maxOutboxBacklog,
+            @Value("${inventory.admission.decrease-factor:0.5}") double decreaseFactor,
+            MeterRegistry meterRegistry
+    ) {
+        this.listenerRegistry = listenerRegistry;
+        this.metrics = metrics;
+        this.outboxEventPublisherService = outboxEventPublisherService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.stockService = stockService;
+        this.dataSource = dataSource;
+        this.targetP99Nanos = targetP99Ms * 1_000_000;
+        this.redisTargetP99Ms = redisTargetP99Ms;
+        this.maxOutboxBacklog = maxOutboxBacklog;
+        this.decreaseFactor = decreaseFactor;
+        Gauge.builder("inventory.admission.limit", this, service -> Math.min(service.limit, service.assigned)).register(meterRegistry);
+        Gauge.builder("inventory.admission.paused.partitions", this, service -> service.paused).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.admission.interval-ms:1000}")
+    public synchronized void adjust() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        Collection<TopicPartition> assignedPartitions = container.getAssignedPartitions();
+        List<TopicPartition> partitions = assignedPartitions == null ? List.of() : new ArrayList<>(assignedPartitions);
+        partitions.sort(Comparator.comparing(TopicPartition::topic).thenComparingInt(TopicPartition::partition));
+        assigned = partitions.size();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        limit = Math.min(limit, partitions.size());
+
+        long p99 = metrics.takeRecentP99Nanos();
+        lastP99Ms = p99 < 0 ? -1 : p99 / 1e6;
+        String saturation = saturation();
+        if (saturation != null) {
+            limit = 0;
+            lastDecision = saturation;
+        } else if (p99 > targetP99Nanos) {
+            limit = Math.max(1, (int) (limit * decreaseFactor));
+            lastDecision = "p99 over target";
+        } else if (metrics.stageP99Millis(OrderPipelineMetrics.STAGE_LUA_RESERVE) > redisTargetP99Ms) {
+            limit = Math.max(1, (int) (limit * decreaseFactor));
+            lastDecision = "redis p99 over target";
+        } else {
+            // Also taken when nothing was processed: a paused limit has to reopen on its own
+            limit = Math.min(partitions.size(), limit + 1);
+            lastDecision = "healthy";
+        }
+
+        apply(container, partitions);
+        updatedAt = OffsetDateTime.now();
+    }
+
+    // Hard signals: more work now would only queue on an exhausted resource
+    private String saturation() {
+        HikariPoolMXBean pool = hikariPool();
+        if (pool != null && pool.getThreadsAwaitingConnection() > 0 && pool.getIdleConnections() == 0) {
+            return "hikari pool exhausted";
+        }
+        if (outboxEventPublisherService.getBacklog() > maxOutboxBacklog) {
+            return "outbox backlog over bound";
+        }
+        if (stockService.isWriteBehindEnabled() && !redisCircuitBreaker.allowRequest()) {
+            // Orders would only be redelivered: write-behind has no DB-only fallback
+            return "redis unavailable in write-behind mode";
+        }
+        return null;
+    }
+
+    private void apply(MessageListenerContainer container, List<TopicPartition> partitions) {
+        int size = partitions.size();
+        int start = (int) (tick++ % size);
+        int pausedCount = 0;
+        for (int i = 0; i < size; i++) {
+            TopicPartition partition = partitions.get((start + i) % size);
+            boolean active = i < limit;
+            if (active && container.isPartitionPauseRequested(partition)) {
+                container.resumePartition(partition);
+            } else if (!active) {
+                pausedCount++;
+                if (!container.isPartitionPauseRequested(partition)) {
+                    container.pausePartition(partition);
+                }
+            }
+        }
+        if (pausedCount != paused) {
+            log.info("Order admission: {} of {} partitions active ({}, p99={} ms)", size - pausedCount, size, lastDecision, lastP99Ms);
+        }
+        paused = pausedCount;
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        try {
+            // Null until the pool has started
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("limit", Math.min(limit, assigned));
+        state.put("assignedPartitions", assigned);
+        state.put("pausedPartitions", paused);
+        state.put("decision", lastDecision);
+        state.put("p99Ms", lastP99Ms);
+        state.put("targetP99Ms", targetP99Nanos / 1_000_000);
+        state.put("redisP99Ms", metrics.stageP99Millis(OrderPipelineMetrics.STAGE_LUA_RESERVE));
+        state.put("redisTargetP99Ms", redisTargetP99Ms);
+        state.put("outboxBacklog", outboxEventPublisherService.getBacklog());
+        state.put("maxOutboxBacklog", maxOutboxBacklog);
+        HikariPoolMXBean pool = hikariPool();
+        if (pool != null) {
+            state.put("hikariActive", pool.getActiveConnections());
+            state.put("hikariIdle", pool.getIdleConnections());
+            state.put("hikariWaiting", pool.getThreadsAwaitingConnection());
+        }
+        state.put("updatedAt", updatedAt);
+        return state;
+    }
+}
@@ -0,0 +1,44 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BatchReservationResult {
+    private final boolean reserved;
+    private final List<ItemResult> items;
+
+    public List<Long> getMissingProductIds() {
+        return items.stream()
+                .filter(item -> item.getStatus() == ItemStatus.NOT_FOUND)
+                .map(ItemResult::getProductId)
+                .distinct()
+                .toList();
+    }
+
+    public ItemResult getFirstFailure() {
+        return items.stream()
+                .filter(item -> item.getStatus() != ItemStatus.AVAILABLE)
+                .findFirst()
+                .orElse(null);
+    }
+
+    public enum ItemStatus {
+        AVAILABLE,
+        INSUFFICIENT,
+        NOT_FOUND
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemResult {
+        private final Long productId;
+        private final Integer requestedQuantity;
+        private final ItemStatus status;
+        // Remaining stock when reserved, current stock otherwise
+        private final Long quantity;
+    }
+}
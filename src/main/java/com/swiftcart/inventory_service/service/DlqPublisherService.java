@@ -0,0 +1,78 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@Slf4j
+public class DlqPublisherService {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final String dlqTopic;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public DlqPublisherService(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${inventory.dlq.topic:inventory-dlq}") String dlqTopic,
+            MeterRegistry meterRegistry
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.dlqTopic = dlqTopic;
+        this.sentCounter = Counter.builder("inventory.dlq.sends").tag("result", "sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("inventory.dlq.sends").tag("result", "failed").register(meterRegistry);
+    }
+
+    public void sendToDlq(String key, OrderCreatedEvent event) {
+        try {
+            sendToDlqOrThrow(key, event);
+        } catch (Exception dlqError) {
+            // Already logged and counted
+        }
+    }
+
+    // For callers that redeliver the event when it could not be dead-lettered
+    public void sendToDlqOrThrow(String key, OrderCreatedEvent event) {
+        try {
+            kafkaTemplate.send(dlqTopic, key, event).get();
+            sentCounter.increment();
+            log.info("Sent failed event to DLQ: orderId={}, key={}", event.getOrderId(), key);
+        } catch (Exception dlqError) {
+            failedCounter.increment();
+            log.error("Failed to send to DLQ: orderId={}, key={}", event.getOrderId(), key, dlqError);
+            if (dlqError instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("Failed to send event to DLQ", dlqError);
+        }
+    }
+
+    // Sends every failed event without waiting on each one, then waits for all sends to finish
+    public void sendAllToDlq(Map<OrderCreatedEvent, String> keysByEvent) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(keysByEvent.size());
+        keysByEvent.forEach((event, key) -> sends.add(kafkaTemplate.send(dlqTopic, key, event)
+                .whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        sentCounter.increment();
+                        log.info("Sent failed event to DLQ: orderId={}, key={}", event.getOrderId(), key);
+                    } else {
+                        failedCounter.increment();
+                        log.error("Failed to send to DLQ: orderId={}, key={}", event.getOrderId(), key, ex);
+                    }
+                })));
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+        } catch (Exception e) {
+            // Individual failures are already logged above
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.swiftcart.inventory_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swiftcart.inventory_service.entity.OrderEventLog;
+import com.swiftcart.inventory_service.repository.OrderEventLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Claims requestIds so each order is processed once. Checked in order: a bounded in-process cache of
+// recently seen ids, an atomic SET NX EX in Redis, and the order_event_log table when Redis is down
+@Service
+@Slf4j
+public class IdempotencyService {
+    private static final String KEY_PREFIX = "idempotency:request:";
+    private static final byte[] PROCESSED = RedisSerializer.string().serialize("PROCESSED");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final OrderEventLogRepository orderEventLogRepository;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final Expiration redisExpiration;
+    private final Cache<String, Boolean> recentRequestIds;
+    private final Counter localDuplicates;
+    private final Counter redisNew;
+    private final Counter redisDuplicates;
+    private final Counter databaseNew;
+    private final Counter databaseDuplicates;
+    // Claimed through the database while Redis was down; written to Redis when it comes back
+    private final Set<String> claimedWithoutRedis = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(
+            RedisTemplate<String, Object> redisTemplate,
+            OrderEventLogRepository orderEventLogRepository,
+            RedisCircuitBreaker redisCircuitBreaker,
+            @Value("${inventory.idempotency.redis-ttl:24h}") Duration redisTtl,
+            @Value("${inventory.idempotency.local.max-size:100000}") long localMaxSize,
+            @Value("${inventory.idempotency.local.ttl:10m}") Duration localTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.orderEventLogRepository = orderEventLogRepository;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.redisExpiration = Expiration.from(redisTtl);
+        this.recentRequestIds = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build();
+        this.localDuplicates = checkCounter(meterRegistry, "local", "duplicate");
+        this.redisNew = checkCounter(meterRegistry, "redis", "new");
+        this.redisDuplicates = checkCounter(meterRegistry, "redis", "duplicate");
+        this.databaseNew = checkCounter(meterRegistry, "database", "new");
+        this.databaseDuplicates = checkCounter(meterRegistry, "database", "duplicate");
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, String source, String result) {
+        return Counter.builder("inventory.idempotency.checks")
+                .tag("source", source)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // Returns true if the requestId was not seen before and is now claimed
+    public boolean claim(String requestId) {
+        return !claimAll(List.of(requestId)).isEmpty();
+    }
+
+    // Returns the requestIds that were not seen before, in order; a requestId repeated in the list is claimed once
+    public Set<String> claimAll(List<String> requestIds) {
+        List<String> unseen = new ArrayList<>(requestIds.size());
+        for (String requestId : requestIds) {
+            if (recentRequestIds.getIfPresent(requestId) != null) {
+                localDuplicates.increment();
+            } else {
+                unseen.add(requestId);
+            }
+        }
+        Set<String> claimed = new LinkedHashSet<>();
+        if (unseen.isEmpty()) {
+            return claimed;
+        }
+
+        if (!redisCircuitBreaker.allowRequest() || !claimInRedis(unseen, claimed)) {
+            claimInDatabase(unseen, claimed);
+            claimedWithoutRedis.addAll(claimed);
+        }
+
+        // Redeliveries after a rebalance are then answered without a round trip
+        unseen.forEach(requestId -> recentRequestIds.put(requestId, Boolean.TRUE));
+        return claimed;
+    }
+
+    // Gives claims back for orders that were not processed and will be redelivered. Claims made in the
+    // database are order_event_log rows, which the failed transaction already rolled back
+    public void release(Collection<String> requestIds) {
+        recentRequestIds.invalidateAll(requestIds);
+        claimedWithoutRedis.removeAll(requestIds);
+        if (!redisCircuitBreaker.allowRequest()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(requestIds.stream().map(requestId -> KEY_PREFIX + requestId).toList());
+        } catch (Exception e) {
+            log.error("Failed to release idempotency claims: requestIds={}", requestIds, e);
+            redisCircuitBreaker.recordFailure(e);
+        }
+    }
+
+    // Otherwise a redelivery of an order processed during the outage would pass the Redis check
+    @EventListener
+    public void onRedisRecovered(RedisRecoveredEvent event) {
+        List<String> requestIds = new ArrayList<>(claimedWithoutRedis);
+        if (requestIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String requestId : requestIds) {
+                connection.stringCommands().set(
+                        RedisSerializer.string().serialize(KEY_PREFIX + requestId),
+                        PROCESSED,
+                        redisExpiration,
+                        RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+        requestIds.forEach(claimedWithoutRedis::remove);
+        log.info("Wrote {} requestIds claimed while Redis was down back to Redis", requestIds.size());
+    }
+
+    private boolean claimInRedis(List<String> requestIds, Set<String> claimed) {
+        try {
+            // One pipelined SET NX EX per requestId, atomic per key; a repeat within the list loses on its second SET
+            List<Object> isNewRequest = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String requestId : requestIds) {
+                    connection.stringCommands().set(
+                            RedisSerializer.string().serialize(KEY_PREFIX + requestId),
+                            PROCESSED,
+                            redisExpiration,
+                            RedisStringCommands.SetOption.ifAbsent());
+                }
+                return null;
+            });
+            redisCircuitBreaker.recordSuccess();
+            for (int i = 0; i < requestIds.size(); i++) {
+                if (Boolean.TRUE.equals(isNewRequest.get(i))) {
+                    redisNew.increment();
+                    claimed.add(requestIds.get(i));
+                } else {
+                    redisDuplicates.increment();
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Redis error during duplicate check for {} requests, falling back to the database", requestIds.size(), e);
+            redisCircuitBreaker.recordFailure(e);
+            return false;
+        }
+    }
+
+    private void claimInDatabase(List<String> requestIds, Set<String> claimed) {
+        // Every processed order is logged with its outcome, so this also catches rejected ones
+        Set<String> processed = orderEventLogRepository.findAllById(requestIds).stream()
+                .map(OrderEventLog::getRequestId)
+                .collect(Collectors.toSet());
+        for (String requestId : requestIds) {
+            if (processed.add(requestId)) {
+                databaseNew.increment();
+                claimed.add(requestId);
+            } else {
+                databaseDuplicates.increment();
+            }
+        }
+    }
+}
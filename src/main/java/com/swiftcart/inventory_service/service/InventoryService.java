@@ -1,10 +1,9 @@
 package com.swiftcart.inventory_service.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swiftcart.inventory_service.codec.InventoryEventCodec;
 import com.swiftcart.inventory_service.dto.InventoryEvent;
 import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
-import com.swiftcart.inventory_service.entity.Inventory;
 import com.swiftcart.inventory_service.entity.OrderEventLog;
 import com.swiftcart.inventory_service.entity.OutboxEvent;
 import com.swiftcart.inventory_service.repository.InventoryRepository;
@@ -12,188 +11,580 @@ import com.swiftcart.inventory_service.repository.OrderEventLogRepository;
 import com.swiftcart.inventory_service.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class InventoryService {
+    private static final LogSampler DUPLICATE_LOG = new LogSampler(5);
+
     private final OrderEventLogRepository orderEventLogRepository;
     private final InventoryRepository inventoryRepository;
     private final OutboxEventRepository outboxEventRepository;
     private final StockService stockService;
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final IdempotencyService idempotencyService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final ProductCatalogCache productCatalogCache;
+    private final InventoryEventCodec inventoryEventCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderPipelineMetrics metrics;
 
     @Transactional
     public void processOrderCreatedEvent(OrderCreatedEvent event) {
         String requestId = event.getRequestId();
-        Long orderId = event.getOrderId();
 
         // Check idempotency
-        if (!checkForDuplicateRequest(requestId)) {
-            log.warn("Duplicate ORDER_CREATED event skipped: requestId={}", requestId);
+        if (!metrics.time(OrderPipelineMetrics.STAGE_IDEMPOTENCY, () -> idempotencyService.claim(requestId))) {
+            logDuplicate(requestId);
+            metrics.recordDuplicate();
             return;
         }
 
-        // Initialize inventory event
-        InventoryEvent inventoryEvent = new InventoryEvent();
-        inventoryEvent.setVersion(1);
-        inventoryEvent.setRequestId(requestId);
-        inventoryEvent.setOrderId(orderId);
-        inventoryEvent.setOrderItems(new ArrayList<>());
-        inventoryEvent.setTs(OffsetDateTime.now());
+        try {
+            processOrder(event);
+        } catch (StockUnavailableException e) {
+            // Rolled back; the redelivery must not be taken for a duplicate
+            idempotencyService.release(List.of(requestId));
+            throw e;
+        }
+    }
+
+    // Processes a whole poll: one idempotency round trip, a few Redis calls and one DB transaction.
+    // Returns the events that failed, which the caller should dead-letter on their own.
+    public Map<OrderCreatedEvent, Exception> processOrderCreatedEvents(List<OrderCreatedEvent> events) {
+        Map<OrderCreatedEvent, Exception> failures = new LinkedHashMap<>();
 
-        boolean allStockAvailable = true;
-        String failureReason = null;
+        // Check idempotency for the whole batch at once
+        Set<String> claimed = metrics.time(OrderPipelineMetrics.STAGE_IDEMPOTENCY,
+                () -> idempotencyService.claimAll(events.stream().map(OrderCreatedEvent::getRequestId).toList()));
+        List<OrderCreatedEvent> newEvents = new ArrayList<>(claimed.size());
+        for (OrderCreatedEvent event : events) {
+            if (claimed.remove(event.getRequestId())) {
+                newEvents.add(event);
+            } else {
+                logDuplicate(event.getRequestId());
+                metrics.recordDuplicate();
+            }
+        }
+        if (newEvents.isEmpty()) {
+            return failures;
+        }
 
-        // Process each order item
-        for (OrderCreatedEvent.OrderItem orderItem : event.getOrderItems()) {
-            Long productId = orderItem.getProductId();
-            Integer requestedQty = orderItem.getQuantity();
+        if (!redisCircuitBreaker.allowRequest() && stockService.isWriteBehindEnabled()) {
+            // No DB-only mode with write-behind (see reserveStockInDatabase): the whole poll is redelivered later
+            StockUnavailableException unavailable = new StockUnavailableException("Redis unavailable in write-behind mode");
+            newEvents.forEach(event -> failures.put(event, unavailable));
+            idempotencyService.release(newEvents.stream().map(OrderCreatedEvent::getRequestId).toList());
+            return failures;
+        }
 
-            // Check and reserve stock with proper Redis-DB sync
-            StockReservationResult result = reserveStockWithSync(productId, requestedQty);
+        if (!redisCircuitBreaker.allowRequest()) {
+            // DB-only mode: each order takes the guarded database path without touching Redis
+            metrics.recordFallback(OrderPipelineMetrics.FALLBACK_CIRCUIT_OPEN, newEvents.size());
+            processEachOrder(newEvents, failures);
+            return failures;
+        }
 
-            if (result.isSuccess()) {
-                inventoryEvent.getOrderItems().add(new InventoryEvent.OrderItem(productId, requestedQty));
-            } else {
-                allStockAvailable = false;
-                failureReason = result.getReason();
-                break;
+        // Reserve stock for all orders in as few Redis calls as possible
+        List<StockReservationResult> results;
+        try {
+            results = reserveStockForOrders(newEvents);
+            redisCircuitBreaker.recordSuccess();
+        } catch (Exception e) {
+            log.error("Batch reservation in Redis failed, processing {} orders one by one", newEvents.size(), e);
+            redisCircuitBreaker.recordFailure(e);
+            processEachOrder(newEvents, failures);
+            return failures;
+        }
+
+        // Save inventory, event log and outbox rows for the whole batch in one transaction
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveOrderOutcomes(newEvents, results));
+            long reserved = results.stream().filter(StockReservationResult::isSuccess).count();
+            log.info("Order batch processed: orders={}, reserved={}, rejected={}, duplicates={}",
+                    newEvents.size(), reserved, newEvents.size() - reserved, events.size() - newEvents.size());
+        } catch (Exception e) {
+            log.error("Failed to save batch of {} orders, retrying them one by one", newEvents.size(), e);
+            releaseReservedStock(newEvents, results);
+            processEachOrder(newEvents, failures);
+        }
+        return failures;
+    }
+
+    private void processOrder(OrderCreatedEvent event) {
+        // Check and reserve stock for all items at once with proper Redis-DB sync
+        StockReservationResult result = reserveStockWithSync(event.getOrderItems());
+        InventoryEvent inventoryEvent = buildInventoryEvent(event, result);
+
+        // Save event log, rejected orders included, so the database can answer duplicate checks without Redis
+        metrics.time(OrderPipelineMetrics.STAGE_DB_SAVE, () -> orderEventLogRepository.save(buildOrderEventLog(event, result)));
+
+        // Save outbox event
+        metrics.time(OrderPipelineMetrics.STAGE_OUTBOX_INSERT, () -> outboxEventRepository.save(buildOutboxEvent(inventoryEvent)));
+        recordOutcome(result);
+        eventPublisher.publishEvent(new OutboxEventsSavedEvent(1));
+        if (result.isSuccess() && !event.getOrderItems().isEmpty()) {
+            eventPublisher.publishEvent(new StockReservedEvent(Map.of(event.getOrderId(), sumQuantities(event.getOrderItems()))));
+        }
+        // One summary line per order, however many items it has
+        log.info("Order processed: orderId={}, requestId={}, outcome={}, items={}, reason={}", event.getOrderId(),
+                event.getRequestId(), inventoryEvent.getEventType(), event.getOrderItems().size(), result.getMetricReason());
+    }
+
+    private static void logDuplicate(String requestId) {
+        long suppressed = DUPLICATE_LOG.acquire();
+        if (suppressed >= 0) {
+            log.warn("Duplicate ORDER_CREATED event skipped: requestId={}, similar suppressed={}", requestId, suppressed);
+        }
+    }
+
+    private void processEachOrder(List<OrderCreatedEvent> events, Map<OrderCreatedEvent, Exception> failures) {
+        List<String> unavailable = new ArrayList<>();
+        for (OrderCreatedEvent event : events) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> processOrder(event));
+            } catch (StockUnavailableException e) {
+                unavailable.add(event.getRequestId());
+                failures.put(event, e);
+            } catch (Exception e) {
+                failures.put(event, e);
             }
         }
+        if (!unavailable.isEmpty()) {
+            idempotencyService.release(unavailable);
+        }
+    }
 
-        // Prepare outbox event
-        OutboxEvent outboxEvent = new OutboxEvent();
-        outboxEvent.setAggregateType("Inventory");
-        outboxEvent.setAggregateId(orderId);
-        outboxEvent.setCreatedAt(OffsetDateTime.now());
-        outboxEvent.setPublished(false);
+    private void saveOrderOutcomes(List<OrderCreatedEvent> events, List<StockReservationResult> results) {
+        // Apply the stock reserved by all orders of the batch to the database
+        Map<Long, Integer> reservedQuantities = sumReservedQuantities(events, results);
+        Long shortProductId = metrics.time(OrderPipelineMetrics.STAGE_DB_SAVE, () -> applyReservationToDatabase(reservedQuantities));
+        if (shortProductId != null) {
+            // Rolls the batch back; the caller releases the Redis reservations and the orders are retried
+            // one by one, so only those that need the missing stock are rejected
+            throw new IllegalStateException("Database stock lower than Redis reservation for productId: " + shortProductId);
+        }
+
+        List<OrderEventLog> orderEventLogs = new ArrayList<>(events.size());
+        List<OutboxEvent> outboxEvents = new ArrayList<>(events.size());
+        Map<Long, Map<Long, Integer>> reservedByOrder = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            OrderCreatedEvent event = events.get(i);
+            StockReservationResult result = results.get(i);
+            orderEventLogs.add(buildOrderEventLog(event, result));
+            log.debug("Order processed: orderId={}, requestId={}, reserved={}, items={}, reason={}", event.getOrderId(),
+                    event.getRequestId(), result.isSuccess(), event.getOrderItems().size(), result.getMetricReason());
+            outboxEvents.add(buildOutboxEvent(buildInventoryEvent(event, result)));
+            if (result.isSuccess() && !event.getOrderItems().isEmpty()) {
+                reservedByOrder.put(event.getOrderId(), sumQuantities(event.getOrderItems()));
+            }
+        }
+
+        // Inserts are sent as JDBC batches (see hibernate.jdbc.batch_size)
+        metrics.time(OrderPipelineMetrics.STAGE_DB_SAVE, () -> orderEventLogRepository.saveAll(orderEventLogs));
+        metrics.time(OrderPipelineMetrics.STAGE_OUTBOX_INSERT, () -> outboxEventRepository.saveAll(outboxEvents));
+        results.forEach(this::recordOutcome);
+        eventPublisher.publishEvent(new OutboxEventsSavedEvent(outboxEvents.size()));
+        if (!reservedByOrder.isEmpty()) {
+            eventPublisher.publishEvent(new StockReservedEvent(reservedByOrder));
+        }
+    }
+
+    // Records stock given back by settled holds: the database increment and one STOCK_RELEASED event per order
+    public void recordStockReleased(Map<Long, Map<Long, Integer>> releasedByOrder, Map<Long, Integer> databaseDeltas, String reason) {
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryRepository.incrementStock(databaseDeltas);
+            List<OutboxEvent> outboxEvents = new ArrayList<>(releasedByOrder.size());
+            releasedByOrder.forEach((orderId, quantities) -> outboxEvents.add(buildOutboxEvent(buildReleasedEvent(orderId, quantities, reason))));
+            outboxEventRepository.saveAll(outboxEvents);
+            eventPublisher.publishEvent(new OutboxEventsSavedEvent(outboxEvents.size()));
+        });
+    }
+
+    // Counted with the rest of the transaction's work; a rolled-back batch is counted again when retried
+    private void recordOutcome(StockReservationResult result) {
+        if (result.isSuccess()) {
+            metrics.recordReserved(1);
+        } else {
+            metrics.recordRejected(result.getMetricReason());
+        }
+    }
+
+    private void releaseReservedStock(List<OrderCreatedEvent> events, List<StockReservationResult> results) {
+        Map<Long, Integer> reservedQuantities = sumReservedQuantities(events, results);
+        try {
+            stockService.releaseStock(reservedQuantities);
+        } catch (Exception e) {
+            log.error("Failed to release stock reserved by failed batch for productIds: {}", reservedQuantities.keySet(), e);
+        }
+    }
+
+    private Map<Long, Integer> sumReservedQuantities(List<OrderCreatedEvent> events, List<StockReservationResult> results) {
+        Map<Long, Integer> reservedQuantities = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                sumQuantities(events.get(i).getOrderItems()).forEach(
+                        (productId, quantity) -> reservedQuantities.merge(productId, quantity, Integer::sum));
+            }
+        }
+        return reservedQuantities;
+    }
 
-        if (allStockAvailable) {
+    private OrderEventLog buildOrderEventLog(OrderCreatedEvent event, StockReservationResult result) {
+        return new OrderEventLog(event.getRequestId(), event.getOrderId(), "ORDER_CREATED",
+                result.isSuccess() ? OrderEventLog.OUTCOME_RESERVED : OrderEventLog.OUTCOME_REJECTED);
+    }
+
+    private InventoryEvent buildInventoryEvent(OrderCreatedEvent event, StockReservationResult result) {
+        InventoryEvent inventoryEvent = new InventoryEvent();
+        inventoryEvent.setVersion(1);
+        inventoryEvent.setRequestId(event.getRequestId());
+        inventoryEvent.setOrderId(event.getOrderId());
+        inventoryEvent.setOrderItems(new ArrayList<>());
+        inventoryEvent.setTs(OffsetDateTime.now());
+
+        if (result.isSuccess()) {
             inventoryEvent.setEventType("STOCK_RESERVED");
             inventoryEvent.setStatus("SUCCESS");
-
-            // Save event log
-            OrderEventLog orderEventLog = new OrderEventLog();
-            orderEventLog.setRequestId(requestId);
-            orderEventLog.setOrderId(orderId);
-            orderEventLog.setEventType("ORDER_CREATED");
-            orderEventLogRepository.save(orderEventLog);
+            for (OrderCreatedEvent.OrderItem orderItem : event.getOrderItems()) {
+                inventoryEvent.getOrderItems().add(new InventoryEvent.OrderItem(orderItem.getProductId(), orderItem.getQuantity()));
+            }
         } else {
             inventoryEvent.setEventType("ORDER_CANCELLED");
             inventoryEvent.setStatus("FAILED");
-            inventoryEvent.setReason(failureReason);
-            inventoryEvent.setOrderItems(new ArrayList<>());
+            inventoryEvent.setReason(result.getReason());
         }
+        return inventoryEvent;
+    }
 
-        // Save outbox event
+    private InventoryEvent buildReleasedEvent(Long orderId, Map<Long, Integer> quantities, String reason) {
+        InventoryEvent inventoryEvent = new InventoryEvent();
+        inventoryEvent.setVersion(1);
+        inventoryEvent.setOrderId(orderId);
+        inventoryEvent.setOrderItems(new ArrayList<>());
+        inventoryEvent.setTs(OffsetDateTime.now());
+        inventoryEvent.setEventType("STOCK_RELEASED");
+        inventoryEvent.setStatus("SUCCESS");
+        inventoryEvent.setReason(reason);
+        quantities.forEach((productId, quantity) -> inventoryEvent.getOrderItems().add(new InventoryEvent.OrderItem(productId, quantity)));
+        return inventoryEvent;
+    }
+
+    private OutboxEvent buildOutboxEvent(InventoryEvent inventoryEvent) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateType("Inventory");
+        outboxEvent.setAggregateId(inventoryEvent.getOrderId());
+        outboxEvent.setCreatedAt(OffsetDateTime.now());
+        outboxEvent.setPublished(false);
+        outboxEvent.setEventType(inventoryEvent.getEventType());
         try {
-            outboxEvent.setEventType(inventoryEvent.getEventType());
-            outboxEvent.setPayload(objectMapper.writeValueAsString(inventoryEvent));
-            outboxEventRepository.save(outboxEvent);
-            log.info("Saved {} event to outbox for orderId={}", inventoryEvent.getEventType(), orderId);
+            outboxEvent.setPayload(inventoryEventCodec.encode(inventoryEvent));
         } catch (JsonProcessingException e) {
-            log.error("Failed to serialize {} event for orderId={}", inventoryEvent.getEventType(), orderId, e);
+            log.error("Failed to serialize {} event for orderId={}", inventoryEvent.getEventType(), inventoryEvent.getOrderId(), e);
             throw new RuntimeException("Failed to save outbox event", e);
         }
+        return outboxEvent;
     }
 
-    private StockReservationResult reserveStockWithSync(Long productId, Integer requestedQty) {
-        // First, check if product exists in database
-        Optional<Inventory> inventoryOpt = inventoryRepository.findById(productId);
-        if (inventoryOpt.isEmpty()) {
-            return new StockReservationResult(false, "Product not found in database: productId=" + productId);
+    private List<StockReservationResult> reserveStockForOrders(List<OrderCreatedEvent> events) {
+        StockReservationResult[] results = new StockReservationResult[events.size()];
+
+        // Check every product of the batch at once, against the product cache
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (OrderCreatedEvent event : events) {
+            for (OrderCreatedEvent.OrderItem orderItem : event.getOrderItems()) {
+                if (orderItem.getProductId() != null) {
+                    productIds.add(orderItem.getProductId());
+                }
+            }
         }
+        Set<Long> unknownProductIds = metrics.time(OrderPipelineMetrics.STAGE_DB_LOAD, () -> productCatalogCache.findUnknown(productIds));
 
-        Inventory inventory = inventoryOpt.get();
+        // Orders that fail validation never reach Redis
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            StockReservationResult invalid = validateOrderItems(events.get(i).getOrderItems(), unknownProductIds);
+            if (invalid != null) {
+                results[i] = invalid;
+            } else if (events.get(i).getOrderItems().isEmpty()) {
+                results[i] = StockReservationResult.reserved();
+            } else {
+                pending.add(i);
+            }
+        }
 
-        // Sync Redis with DB if needed
-        syncRedisWithDatabase(productId, inventory.getQuantity());
+        for (int attempt = 0; attempt < 2 && !pending.isEmpty(); attempt++) {
+            List<List<OrderCreatedEvent.OrderItem>> pendingItems = pending.stream().map(i -> events.get(i).getOrderItems()).toList();
+            List<BatchReservationResult> reservations = metrics.time(OrderPipelineMetrics.STAGE_LUA_RESERVE,
+                    () -> stockService.reserveStockForOrders(pendingItems));
 
-        // Try to reserve stock in Redis
-        try {
-            boolean reserved = stockService.reserveStock(productId, requestedQty);
-
-            if (reserved) {
-                // Update database to match Redis
-                inventory.setQuantity(inventory.getQuantity() - requestedQty);
-                inventoryRepository.save(inventory);
-                log.info("Reserved {} units of productId={}, remaining: {}", requestedQty, productId, inventory.getQuantity());
-                return new StockReservationResult(true, null);
-            } else {
-                return new StockReservationResult(false, "Insufficient stock for productId: " + productId);
+            Set<Long> missingProductIds = new LinkedHashSet<>();
+            List<Integer> retry = new ArrayList<>();
+            for (int j = 0; j < pending.size(); j++) {
+                BatchReservationResult reservation = reservations.get(j);
+                if (attempt == 0 && !reservation.isReserved() && !reservation.getMissingProductIds().isEmpty()) {
+                    missingProductIds.addAll(reservation.getMissingProductIds());
+                    retry.add(pending.get(j));
+                } else {
+                    results[pending.get(j)] = toStockReservationResult(reservation);
+                }
             }
-        } catch (Exception e) {
-            log.error("Error reserving stock in Redis for productId: {}", productId, e);
-
-            // Fallback: Try direct database reservation
-            if (inventory.getQuantity() >= requestedQty) {
-                inventory.setQuantity(inventory.getQuantity() - requestedQty);
-                inventoryRepository.save(inventory);
-
-                // Try to sync Redis after DB update
-                try {
-                    String stockKey = "stock:productId:" + productId;
-                    redisTemplate.opsForHash().put(stockKey, "quantity", String.valueOf(inventory.getQuantity()));
-                } catch (Exception redisEx) {
-                    log.warn("Failed to update Redis after DB reservation for productId: {}", productId);
+
+            // Redis doesn't have some products yet, sync from DB and retry those orders once
+            if (!missingProductIds.isEmpty()) {
+                metrics.time(OrderPipelineMetrics.STAGE_REDIS_SYNC, () -> syncRedisWithDatabase(new ArrayList<>(missingProductIds)));
+            }
+            pending = retry;
+        }
+        return Arrays.asList(results);
+    }
+
+    private StockReservationResult validateOrderItems(List<OrderCreatedEvent.OrderItem> orderItems, Set<Long> unknownProductIds) {
+        for (OrderCreatedEvent.OrderItem orderItem : orderItems) {
+            if (orderItem.getProductId() == null || orderItem.getQuantity() == null || orderItem.getQuantity() <= 0) {
+                return new StockReservationResult(false, "Invalid productId or quantity: productId=" + orderItem.getProductId(),
+                        OrderPipelineMetrics.REASON_INVALID_ITEM);
+            }
+        }
+        for (OrderCreatedEvent.OrderItem orderItem : orderItems) {
+            if (unknownProductIds.contains(orderItem.getProductId())) {
+                return new StockReservationResult(false, "Product not found in database: productId=" + orderItem.getProductId(),
+                        OrderPipelineMetrics.REASON_UNKNOWN_PRODUCT);
+            }
+        }
+        return null;
+    }
+
+    private StockReservationResult toStockReservationResult(BatchReservationResult reservation) {
+        if (reservation.isReserved()) {
+            return StockReservationResult.reserved();
+        }
+        BatchReservationResult.ItemResult failure = reservation.getFirstFailure();
+        if (failure.getStatus() == BatchReservationResult.ItemStatus.NOT_FOUND) {
+            return new StockReservationResult(false, "Product not found in Redis: productId=" + failure.getProductId(),
+                    OrderPipelineMetrics.REASON_NOT_IN_REDIS);
+        }
+        return new StockReservationResult(false, "Insufficient stock for productId: " + failure.getProductId(),
+                OrderPipelineMetrics.REASON_INSUFFICIENT_STOCK);
+    }
+
+    private StockReservationResult reserveStockWithSync(List<OrderCreatedEvent.OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return StockReservationResult.reserved();
+        }
+
+        // First, check if every product exists in database (cached, so known products skip the query)
+        Set<Long> productIds = orderItems.stream()
+                .map(OrderCreatedEvent.OrderItem::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        StockReservationResult invalid = validateOrderItems(orderItems,
+                metrics.time(OrderPipelineMetrics.STAGE_DB_LOAD, () -> productCatalogCache.findUnknown(productIds)));
+        if (invalid != null) {
+            return invalid;
+        }
+
+        // Try to reserve all items in Redis with a single script call, unless Redis is known to be down
+        if (redisCircuitBreaker.allowRequest()) {
+            try {
+                BatchReservationResult result = metrics.time(OrderPipelineMetrics.STAGE_LUA_RESERVE,
+                        () -> stockService.reserveStockBatch(orderItems));
+
+                List<Long> missingProductIds = result.getMissingProductIds();
+                if (!result.isReserved() && !missingProductIds.isEmpty()) {
+                    // Redis doesn't have some products yet, sync from DB and retry once
+                    metrics.time(OrderPipelineMetrics.STAGE_REDIS_SYNC, () -> syncRedisWithDatabase(missingProductIds));
+                    result = metrics.time(OrderPipelineMetrics.STAGE_LUA_RESERVE, () -> stockService.reserveStockBatch(orderItems));
                 }
+                redisCircuitBreaker.recordSuccess();
 
-                log.info("Reserved {} units of productId={} via database, remaining: {}", requestedQty, productId, inventory.getQuantity());
-                return new StockReservationResult(true, null);
-            } else {
-                return new StockReservationResult(false, "Insufficient stock for productId: " + productId);
+                if (!result.isReserved()) {
+                    return toStockReservationResult(result);
+                }
+            } catch (Exception e) {
+                log.error("Error reserving stock in Redis for productIds: {}", productIds, e);
+                redisCircuitBreaker.recordFailure(e);
+                if (!redisCircuitBreaker.allowRequest()) {
+                    metrics.recordFallback(OrderPipelineMetrics.FALLBACK_REDIS_ERROR, 1);
+                }
+                return metrics.time(OrderPipelineMetrics.STAGE_DB_RESERVE, () -> reserveStockInDatabase(orderItems, productIds));
             }
+
+            // Outside the Redis try: Redis holds the reservation now, so a database failure must give it
+            // back rather than fall back to a second reservation in the database
+            return applyRedisReservation(orderItems, productIds);
         }
+
+        metrics.recordFallback(OrderPipelineMetrics.FALLBACK_CIRCUIT_OPEN, 1);
+        return metrics.time(OrderPipelineMetrics.STAGE_DB_RESERVE, () -> reserveStockInDatabase(orderItems, productIds));
     }
 
-    private void syncRedisWithDatabase(Long productId, Integer dbQuantity) {
+    private StockReservationResult applyRedisReservation(List<OrderCreatedEvent.OrderItem> orderItems, Set<Long> productIds) {
+        Map<Long, Integer> reservedQuantities = sumQuantities(orderItems);
+        Long shortProductId;
         try {
-            String stockKey = "stock:productId:" + productId;
-            Object redisQuantity = redisTemplate.opsForHash().get(stockKey, "quantity");
+            shortProductId = metrics.time(OrderPipelineMetrics.STAGE_DB_SAVE, () -> applyReservationToDatabase(reservedQuantities));
+        } catch (RuntimeException e) {
+            releaseRedisReservation(reservedQuantities);
+            throw e;
+        }
+        if (shortProductId != null) {
+            // Redis is ahead of the database for this product; the order is rejected rather than oversold
+            releaseRedisReservation(reservedQuantities);
+            return new StockReservationResult(false, "Insufficient stock for productId: " + shortProductId,
+                    OrderPipelineMetrics.REASON_INSUFFICIENT_STOCK);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A later step of the transaction may still fail (event log, outbox, commit); the redelivered
+            // order reserves again, so this reservation is given back, as the batch path does
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        releaseRedisReservation(reservedQuantities);
+                    }
+                }
+            });
+        }
+        log.debug("Reserved {} items for productIds={}", orderItems.size(), productIds);
+        return StockReservationResult.reserved();
+    }
 
-            if (redisQuantity == null) {
-                // Redis doesn't have this product, sync from DB
-                redisTemplate.opsForHash().put(stockKey, "quantity", String.valueOf(dbQuantity));
-                log.info("Synced Redis with DB for productId={}, quantity={}", productId, dbQuantity);
-            }
+    private void releaseRedisReservation(Map<Long, Integer> reservedQuantities) {
+        try {
+            stockService.releaseStock(reservedQuantities);
         } catch (Exception e) {
-            log.warn("Failed to sync Redis with database for productId: {}", productId, e);
+            log.error("Failed to release Redis reservation for productIds: {}", reservedQuantities.keySet(), e);
         }
     }
 
-    private boolean checkForDuplicateRequest(String requestId) {
-        try {
-            String idempotencyKey = "idempotency:request:" + requestId;
-            Boolean isNewRequest = redisTemplate.opsForValue().setIfAbsent(idempotencyKey, "PROCESSED");
-            if (Boolean.TRUE.equals(isNewRequest)) {
-                redisTemplate.expire(idempotencyKey, 24, TimeUnit.HOURS);
-                return true;
+    // Fallback while the breaker is open: guarded database decrement of all items, or none. Redis is not
+    // touched; the breaker takes the decrements off Redis before it closes, and cannot close while this
+    // transaction is open. A Redis error while the breaker is still closed is not a fallback case:
+    // Redis keeps reserving for other orders, so the database alone cannot tell what is available
+    private StockReservationResult reserveStockInDatabase(List<OrderCreatedEvent.OrderItem> orderItems, Set<Long> productIds) {
+        if (stockService.isWriteBehindEnabled()) {
+            // The database lags Redis by the unflushed stock:deltas journal, so its guarded decrement would
+            // approve stock Redis already gave away. With write-behind, orders wait for Redis instead
+            throw new StockUnavailableException("Redis unavailable in write-behind mode, order to be retried: productIds=" + productIds);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || !redisCircuitBreaker.enterDatabaseOnly()) {
+            throw new StockUnavailableException("Redis reservation failed, order to be retried: productIds=" + productIds);
+        }
+        Map<Long, Integer> requestedQuantities = sumQuantities(orderItems);
+        Map<Long, Integer> changed = new LinkedHashMap<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                redisCircuitBreaker.exitDatabaseOnly(status == STATUS_COMMITTED ? changed : Map.of());
+            }
+        });
+
+        Long shortProductId = decrementAllOrNone(requestedQuantities);
+        if (shortProductId != null) {
+            return new StockReservationResult(false, "Insufficient stock for productId: " + shortProductId,
+                    OrderPipelineMetrics.REASON_INSUFFICIENT_STOCK);
+        }
+
+        // Handed to the breaker after commit, for the resync to take off Redis as well
+        requestedQuantities.forEach((productId, quantity) -> changed.put(productId, -quantity));
+        log.debug("Reserved {} items for productIds={} via database", orderItems.size(), productIds);
+        return StockReservationResult.reserved();
+    }
+
+    // Redis already checked and reserved the stock; the guarded decrement keeps the DB from going negative.
+    // Returns the product the database could not cover, with nothing decremented, or null when all were
+    private Long applyReservationToDatabase(Map<Long, Integer> reservedQuantities) {
+        if (stockService.isWriteBehindEnabled()) {
+            // The reservation script journaled the deltas; StockWriteBehindService applies them in bulk
+            return null;
+        }
+
+        Long shortProductId = decrementAllOrNone(reservedQuantities);
+        if (shortProductId != null) {
+            log.warn("Database stock lower than Redis reservation, DB not decremented: productId={}, quantity={}",
+                    shortProductId, reservedQuantities.get(shortProductId));
+        }
+        return shortProductId;
+    }
+
+    // Guarded decrement of every product, or none: returns the first product that was short, or null
+    private Long decrementAllOrNone(Map<Long, Integer> quantities) {
+        Map<Long, Integer> updated = inventoryRepository.decrementStock(quantities);
+        Long shortProductId = quantities.keySet().stream()
+                .filter(productId -> updated.getOrDefault(productId, 0) == 0)
+                .findFirst()
+                .orElse(null);
+        if (shortProductId != null) {
+            // Give back what was already taken for the other items
+            Map<Long, Integer> applied = new LinkedHashMap<>(quantities);
+            applied.keySet().removeIf(productId -> updated.getOrDefault(productId, 0) == 0);
+            inventoryRepository.incrementStock(applied);
+        }
+        return shortProductId;
+    }
+
+    private Map<Long, Integer> sumQuantities(List<OrderCreatedEvent.OrderItem> orderItems) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderCreatedEvent.OrderItem orderItem : orderItems) {
+            quantities.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Quantities are only read here, for the products Redis does not have yet
+    private void syncRedisWithDatabase(List<Long> productIds) {
+        Map<Long, Integer> dbQuantities = inventoryRepository.findQuantities(productIds);
+        List<Long> deleted = productIds.stream().filter(productId -> !dbQuantities.containsKey(productId)).toList();
+        if (!deleted.isEmpty()) {
+            // Gone from the database since they were cached; the retry reports them as not found
+            productCatalogCache.invalidate(deleted);
+        }
+        for (Map.Entry<Long, Integer> entry : dbQuantities.entrySet()) {
+            Long productId = entry.getKey();
+            Integer dbQuantity = entry.getValue();
+            try {
+                // Redis doesn't have this product, sync from DB unless another consumer already did
+                stockService.seedStock(productId, dbQuantity);
+                log.debug("Synced Redis with DB for productId={}, quantity={}", productId, dbQuantity);
+            } catch (Exception e) {
+                log.warn("Failed to sync Redis with database for productId: {}", productId, e);
             }
-            return false;
-        } catch (Exception e) {
-            log.error("Redis error during duplicate check for requestId: {}", requestId, e);
-            // Fallback to database
-            return !orderEventLogRepository.existsById(requestId);
         }
     }
 
     private static class StockReservationResult {
         private final boolean success;
         private final String reason;
+        // Low-cardinality form of reason, for the outcome counter
+        private final String metricReason;
 
-        public StockReservationResult(boolean success, String reason) {
+        public StockReservationResult(boolean success, String reason, String metricReason) {
             this.success = success;
             this.reason = reason;
+            this.metricReason = metricReason;
+        }
+
+        public static StockReservationResult reserved() {
+            return new StockReservationResult(true, null, null);
         }
 
         public boolean isSuccess() {
@@ -203,5 +594,9 @@ public class InventoryService {
         public String getReason() {
             return reason;
         }
+
+        public String getMetricReason() {
+            return metricReason;
+        }
     }
 }
\ No newline at end of file
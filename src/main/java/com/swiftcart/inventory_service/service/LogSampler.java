@@ -0,0 +1,38 @@
+package com.swiftcart.inventory_service.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rate limit for log lines that repeat at order rate (insufficient stock, duplicates): at most
+// permitsPerSecond lines per second, each one carrying how many were dropped since the last.
+// Lock-free and allocation-free, so a suppressed line costs two atomic operations
+public class LogSampler {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong permitsUsed = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogSampler(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    // Number of lines suppressed since the last permitted one, or -1 if this line should be dropped.
+    // Orders being traced (see OrderTraceService) are never sampled
+    public long acquire() {
+        if (OrderTraceService.isTracing()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            permitsUsed.set(0);
+        }
+        if (permitsUsed.incrementAndGet() > permitsPerSecond) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
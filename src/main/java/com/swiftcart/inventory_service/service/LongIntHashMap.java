@@ -0,0 +1,101 @@
+package com.swiftcart.inventory_service.service;
+
+// Open-addressing map from long to int without boxing: keys and values live in two parallel arrays
+// and collisions are resolved by linear probing. Not thread-safe; StockReplica guards it.
+// Readers under an optimistic lock may race a writer: put never shrinks or reorders the arrays it
+// reads through, and resize swaps in new arrays, so such a read stays in bounds and is just discarded.
+final class LongIntHashMap {
+    private static final long EMPTY_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    // Key 0 marks empty slots, so its entry is kept on the side
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    int get(long key, int missingValue) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        long[] keys = this.keys;
+        int[] values = this.values;
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                // A concurrent resize may have swapped in a larger array in between
+                return slot < values.length ? values[slot] : missingValue;
+            }
+            if (current == EMPTY_KEY) {
+                return missingValue;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY_KEY) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            if (keys[slot] == EMPTY_KEY) {
+                // Value first, so a reader that sees the key never sees a missing value
+                values[slot] = value;
+                keys[slot] = key;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    resize();
+                }
+                return;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        long[] newKeys = new long[oldKeys.length << 1];
+        int[] newValues = new int[newKeys.length];
+        int mask = newKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int slot = mix(key) & mask;
+                while (newKeys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                newKeys[slot] = key;
+                newValues[slot] = oldValues[i];
+            }
+        }
+        values = newValues;
+        keys = newKeys;
+    }
+
+    // Final step of MurmurHash3, so sequential product ids spread over the table
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,121 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.consumer.mode", havingValue = "batch")
+public class OrderEventBatchConsumerService {
+    private final InventoryService inventoryService;
+    private final DlqPublisherService dlqPublisherService;
+    private final OrderPipelineMetrics metrics;
+    private final OrderTraceService orderTraceService;
+    private final Duration retryBackoff;
+
+    public OrderEventBatchConsumerService(
+            InventoryService inventoryService,
+            DlqPublisherService dlqPublisherService,
+            OrderPipelineMetrics metrics,
+            OrderTraceService orderTraceService,
+            @Value("${inventory.consumer.retry-backoff:1s}") Duration retryBackoff
+    ) {
+        this.inventoryService = inventoryService;
+        this.dlqPublisherService = dlqPublisherService;
+        this.metrics = metrics;
+        this.orderTraceService = orderTraceService;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @KafkaListener(
+            id = AdmissionControlService.LISTENER_ID,
+            idIsGroup = false,
+            topics = "${order.topic.name}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${inventory.consumer.batch.max-poll-records:500}"
+    )
+    public void consumeOrderCreatedEvents(
+            List<ConsumerRecord<String, OrderCreatedEvent>> records,
+            Acknowledgment acknowledgment
+    ) {
+        log.debug("Received batch of {} ORDER_CREATED events", records.size());
+        long start = System.nanoTime();
+
+        List<OrderCreatedEvent> events = new ArrayList<>(records.size());
+        Map<OrderCreatedEvent, String> keys = new IdentityHashMap<>();
+        Map<OrderCreatedEvent, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, OrderCreatedEvent> record = records.get(i);
+            OrderCreatedEvent event = record.value();
+
+            // Validate event
+            if (event == null || event.getOrderId() == null || event.getRequestId() == null) {
+                log.error("Invalid event received: missing orderId or requestId, partition={}, offset={}",
+                        record.partition(), record.offset());
+                continue;
+            }
+            events.add(event);
+            keys.put(event, record.key());
+            indexes.put(event, i);
+        }
+
+        Map<OrderCreatedEvent, Exception> failures;
+        try (OrderTraceService.Scope trace = orderTraceService.open(events)) {
+            failures = inventoryService.processOrderCreatedEvents(events);
+        } catch (Exception e) {
+            // Unexpected errors
+            log.error("Unexpected error processing batch of {} ORDER_CREATED events", events.size(), e);
+            failures = new LinkedHashMap<>();
+            for (OrderCreatedEvent event : events) {
+                failures.put(event, e);
+            }
+        }
+
+        // Each failed record goes to the DLQ on its own; the rest of the batch is unaffected. Records whose
+        // stock was unavailable are redelivered instead, from the first of them on (later records that were
+        // processed come back as duplicates and are skipped)
+        Map<OrderCreatedEvent, String> failedKeys = new LinkedHashMap<>();
+        int retryFrom = records.size();
+        for (Map.Entry<OrderCreatedEvent, Exception> failure : failures.entrySet()) {
+            OrderCreatedEvent event = failure.getKey();
+            if (failure.getValue() instanceof StockUnavailableException) {
+                retryFrom = Math.min(retryFrom, indexes.get(event));
+                continue;
+            }
+            log.error("Failed to process ORDER_CREATED event: orderId={}, error={}",
+                    event.getOrderId(), failure.getValue().getMessage(), failure.getValue());
+            failedKeys.put(event, keys.get(event));
+        }
+        if (!failedKeys.isEmpty()) {
+            dlqPublisherService.sendAllToDlq(failedKeys);
+        }
+
+        if (retryFrom < records.size()) {
+            log.warn("Stock unavailable, redelivering batch from index {} of {} in {}", retryFrom, records.size(), retryBackoff);
+            acknowledgment.nack(retryFrom, retryBackoff);
+        } else {
+            // Commit offsets once for the whole batch
+            acknowledgment.acknowledge();
+        }
+
+        // The poll is processed as one unit, so each of its partitions waited the whole of it
+        long elapsed = System.nanoTime() - start;
+        records.stream().mapToInt(ConsumerRecord::partition).distinct()
+                .forEach(partition -> metrics.recordConsumed(partition, elapsed));
+        log.info("Processed batch of {} ORDER_CREATED events, {} sent to DLQ", records.size(), failedKeys.size());
+    }
+}
@@ -3,32 +3,45 @@ package com.swiftcart.inventory_service.service;
 import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "inventory.consumer.mode", havingValue = "record", matchIfMissing = true)
 public class OrderEventConsumerService {
+    private static final LogSampler DUPLICATE_LOG = new LogSampler(5);
+
     private final InventoryService inventoryService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final String dlqTopic;
+    private final DlqPublisherService dlqPublisherService;
+    private final OrderPipelineMetrics metrics;
+    private final OrderTraceService orderTraceService;
+    private final Duration retryBackoff;
 
     public OrderEventConsumerService(
             InventoryService inventoryService,
-            KafkaTemplate<String, Object> kafkaTemplate,
-            @Value("${inventory.dlq.topic:inventory-dlq}") String dlqTopic
+            DlqPublisherService dlqPublisherService,
+            OrderPipelineMetrics metrics,
+            OrderTraceService orderTraceService,
+            @Value("${inventory.consumer.retry-backoff:1s}") Duration retryBackoff
     ) {
         this.inventoryService = inventoryService;
-        this.kafkaTemplate = kafkaTemplate;
-        this.dlqTopic = dlqTopic;
+        this.dlqPublisherService = dlqPublisherService;
+        this.metrics = metrics;
+        this.orderTraceService = orderTraceService;
+        this.retryBackoff = retryBackoff;
     }
 
     @KafkaListener(
+            id = AdmissionControlService.LISTENER_ID,
+            idIsGroup = false,
             topics = "${order.topic.name}",
             groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "kafkaListenerContainerFactory"
@@ -41,10 +54,11 @@ public class OrderEventConsumerService {
             @Header(KafkaHeaders.OFFSET) long offset,
             Acknowledgment acknowledgment
     ) {
-        log.info("Received ORDER_CREATED event: orderId={}, requestId={}, key={}, partition={}, offset={}",
-                event.getOrderId(), event.getRequestId(), key, partition, offset);
+        long start = System.nanoTime();
+        try (OrderTraceService.Scope trace = orderTraceService.open(event)) {
+            log.debug("Received ORDER_CREATED event: orderId={}, requestId={}, key={}, partition={}, offset={}",
+                    event.getOrderId(), event.getRequestId(), key, partition, offset);
 
-        try {
             // Validate event
             if (event.getOrderId() == null || event.getRequestId() == null) {
                 log.error("Invalid event received: missing orderId or requestId");
@@ -57,13 +71,21 @@ public class OrderEventConsumerService {
 
             // Acknowledge successful processing
             acknowledgment.acknowledge();
-            log.info("Successfully processed ORDER_CREATED event: orderId={}", event.getOrderId());
+
+        } catch (StockUnavailableException e) {
+            // Not processed and not claimed: seek back and redeliver this record after the backoff
+            log.warn("Stock unavailable, redelivering ORDER_CREATED event in {}: orderId={}, error={}",
+                    retryBackoff, event.getOrderId(), e.getMessage());
+            acknowledgment.nack(retryBackoff);
 
         } catch (RuntimeException e) {
             // Check if it's a duplicate event
             if (e.getMessage() != null && e.getMessage().contains("Duplicate")) {
-                log.info("Acknowledging duplicate event: orderId={}, requestId={}",
-                        event.getOrderId(), event.getRequestId());
+                long suppressed = DUPLICATE_LOG.acquire();
+                if (suppressed >= 0) {
+                    log.info("Acknowledging duplicate event: orderId={}, requestId={}, similar suppressed={}",
+                            event.getOrderId(), event.getRequestId(), suppressed);
+                }
                 acknowledgment.acknowledge();
                 return;
             }
@@ -71,24 +93,17 @@ public class OrderEventConsumerService {
             // For other runtime exceptions, send to DLQ
             log.error("Failed to process ORDER_CREATED event: orderId={}, error={}",
                     event.getOrderId(), e.getMessage(), e);
-            sendToDlq(key, event);
+            dlqPublisherService.sendToDlq(key, event);
             acknowledgment.acknowledge();
 
         } catch (Exception e) {
             // Unexpected errors
             log.error("Unexpected error processing ORDER_CREATED event: orderId={}",
                     event.getOrderId(), e);
-            sendToDlq(key, event);
+            dlqPublisherService.sendToDlq(key, event);
             acknowledgment.acknowledge();
-        }
-    }
-
-    private void sendToDlq(String key, OrderCreatedEvent event) {
-        try {
-            kafkaTemplate.send(dlqTopic, key, event).get();
-            log.info("Sent failed event to DLQ: orderId={}, key={}", event.getOrderId(), key);
-        } catch (Exception dlqError) {
-            log.error("Failed to send to DLQ: orderId={}, key={}", event.getOrderId(), key, dlqError);
+        } finally {
+            metrics.recordConsumed(partition, System.nanoTime() - start);
         }
     }
 }
\ No newline at end of file
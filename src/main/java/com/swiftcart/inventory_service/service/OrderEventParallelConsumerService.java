@@ -0,0 +1,156 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ordered-parallel consumption: each poll is split into lanes by record key, so records with the
+// same key (orderId) stay in order while unrelated orders run concurrently. The offsets of a poll
+// are committed only after every lane has finished, so nothing unprocessed is ever committed.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.consumer.mode", havingValue = "parallel")
+public class OrderEventParallelConsumerService {
+    private final InventoryService inventoryService;
+    private final DlqPublisherService dlqPublisherService;
+    private final IdempotencyService idempotencyService;
+    private final OrderPipelineMetrics metrics;
+    private final OrderTraceService orderTraceService;
+    private final int lanes;
+    private final Duration retryBackoff;
+    private final ExecutorService laneExecutor;
+
+    public OrderEventParallelConsumerService(
+            InventoryService inventoryService,
+            DlqPublisherService dlqPublisherService,
+            IdempotencyService idempotencyService,
+            OrderPipelineMetrics metrics,
+            OrderTraceService orderTraceService,
+            @Value("${inventory.consumer.parallel.lanes:16}") int lanes,
+            @Value("${inventory.consumer.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.inventoryService = inventoryService;
+        this.dlqPublisherService = dlqPublisherService;
+        this.idempotencyService = idempotencyService;
+        this.metrics = metrics;
+        this.orderTraceService = orderTraceService;
+        this.lanes = lanes;
+        this.retryBackoff = retryBackoff;
+        // With virtual threads a lane costs no OS thread, so lanes can be raised well past the core count
+        this.laneExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("order-lane-", 0).factory())
+                : Executors.newFixedThreadPool(lanes, Thread.ofPlatform().name("order-lane-", 1).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        laneExecutor.shutdown();
+    }
+
+    @KafkaListener(
+            id = AdmissionControlService.LISTENER_ID,
+            idIsGroup = false,
+            topics = "${order.topic.name}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${inventory.consumer.batch.max-poll-records:500}"
+    )
+    public void consumeOrderCreatedEvents(
+            List<ConsumerRecord<String, OrderCreatedEvent>> records,
+            Acknowledgment acknowledgment
+    ) {
+        log.debug("Received batch of {} ORDER_CREATED events", records.size());
+
+        // Record indexes per lane, in poll order
+        List<List<Integer>> laneRecords = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            laneRecords.add(new ArrayList<>());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            laneRecords.get(laneOf(records.get(i))).add(i);
+        }
+
+        // Lowest index of a record that has to be redelivered; a lane stops at its first one, so the
+        // records behind it in the lane are redelivered with it and keep their order
+        AtomicInteger retryFrom = new AtomicInteger(records.size());
+        List<CompletableFuture<Void>> running = new ArrayList<>(lanes);
+        for (List<Integer> lane : laneRecords) {
+            if (!lane.isEmpty()) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    for (int index : lane) {
+                        if (!processRecord(records.get(index))) {
+                            retryFrom.accumulateAndGet(index, Math::min);
+                            return;
+                        }
+                    }
+                }, laneExecutor));
+            }
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+
+        if (retryFrom.get() < records.size()) {
+            // Records after retryFrom that were processed come back as duplicates and are skipped
+            log.warn("Redelivering batch from index {} of {} in {}", retryFrom.get(), records.size(), retryBackoff);
+            acknowledgment.nack(retryFrom.get(), retryBackoff);
+            return;
+        }
+        acknowledgment.acknowledge();
+        log.info("Processed batch of {} ORDER_CREATED events on {} lanes", records.size(), running.size());
+    }
+
+    private int laneOf(ConsumerRecord<String, OrderCreatedEvent> record) {
+        Object key = record.key();
+        if (key == null && record.value() != null) {
+            key = record.value().getOrderId();
+        }
+        return key == null ? 0 : Math.floorMod(key.hashCode(), lanes);
+    }
+
+    // False if the record was neither processed nor dead-lettered and has to be redelivered
+    private boolean processRecord(ConsumerRecord<String, OrderCreatedEvent> record) {
+        OrderCreatedEvent event = record.value();
+        if (event == null || event.getOrderId() == null || event.getRequestId() == null) {
+            log.error("Invalid event received: missing orderId or requestId, partition={}, offset={}",
+                    record.partition(), record.offset());
+            return true;
+        }
+
+        long start = System.nanoTime();
+        try (OrderTraceService.Scope trace = orderTraceService.open(event)) {
+            inventoryService.processOrderCreatedEvent(event);
+        } catch (StockUnavailableException e) {
+            log.warn("Stock unavailable, ORDER_CREATED event will be redelivered: orderId={}, error={}",
+                    event.getOrderId(), e.getMessage());
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to process ORDER_CREATED event: orderId={}, error={}",
+                    event.getOrderId(), e.getMessage(), e);
+            try {
+                dlqPublisherService.sendToDlqOrThrow(record.key(), event);
+            } catch (Exception dlqError) {
+                // Neither processed nor dead-lettered: give the claim back so the redelivery is not
+                // skipped as a duplicate, and keep the offset uncommitted
+                idempotencyService.release(List.of(event.getRequestId()));
+                return false;
+            }
+        } finally {
+            metrics.recordConsumed(record.partition(), System.nanoTime() - start);
+        }
+        return true;
+    }
+}
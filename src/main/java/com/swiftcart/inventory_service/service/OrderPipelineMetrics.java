@@ -0,0 +1,128 @@
+package com.swiftcart.inventory_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Meters of the ORDER_CREATED pipeline. Every tag has a small fixed set of values (stage, outcome,
+// reason, partition), never a productId or orderId, so the series count does not grow with the catalog.
+// A latency jump shows up in inventory.order.stage under the stage that caused it
+@Component
+public class OrderPipelineMetrics {
+    public static final String STAGE_IDEMPOTENCY = "idempotency";
+    public static final String STAGE_DB_LOAD = "db_load";
+    public static final String STAGE_REDIS_SYNC = "redis_sync";
+    public static final String STAGE_LUA_RESERVE = "lua_reserve";
+    public static final String STAGE_DB_RESERVE = "db_reserve";
+    public static final String STAGE_DB_SAVE = "db_save";
+    public static final String STAGE_OUTBOX_INSERT = "outbox_insert";
+
+    public static final String REASON_INSUFFICIENT_STOCK = "insufficient_stock";
+    public static final String REASON_UNKNOWN_PRODUCT = "unknown_product";
+    public static final String REASON_NOT_IN_REDIS = "not_in_redis";
+    public static final String REASON_INVALID_ITEM = "invalid_item";
+
+    public static final String FALLBACK_CIRCUIT_OPEN = "circuit_open";
+    public static final String FALLBACK_REDIS_ERROR = "redis_error";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outcomeCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> fallbackCounters = new ConcurrentHashMap<>();
+    private final Map<Integer, Timer> partitionTimers = new ConcurrentHashMap<>();
+    // Processing times since the last takeRecentP99, for the admission controller. Samples past the
+    // capacity are dropped, and a write racing the reset may land in either interval; both are fine for a p99
+    private final long[] recentNanos = new long[4096];
+    private final AtomicInteger recentCount = new AtomicInteger();
+
+    public OrderPipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        return stageTimer(stage).record(work);
+    }
+
+    public void time(String stage, Runnable work) {
+        stageTimer(stage).record(work);
+    }
+
+    private Timer stageTimer(String stage) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("inventory.order.stage")
+                .tag("stage", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+
+    public void recordReserved(int orders) {
+        outcomeCounter("reserved", "none").increment(orders);
+    }
+
+    public void recordRejected(String reason) {
+        outcomeCounter("rejected", reason).increment();
+    }
+
+    public void recordDuplicate() {
+        outcomeCounter("duplicate", "none").increment();
+    }
+
+    private Counter outcomeCounter(String outcome, String reason) {
+        return outcomeCounters.computeIfAbsent(outcome + ':' + reason, key -> Counter.builder("inventory.order.outcomes")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+
+    // Orders reserved through the guarded database path instead of Redis
+    public void recordFallback(String cause, int orders) {
+        fallbackCounters.computeIfAbsent(cause, name -> Counter.builder("inventory.order.redis.fallback")
+                .tag("cause", name)
+                .register(meterRegistry)).increment(orders);
+    }
+
+    // Partitions are bounded by the topic's partition count
+    public void recordConsumed(int partition, long nanos) {
+        partitionTimers.computeIfAbsent(partition, p -> Timer.builder("inventory.consumer.processing")
+                .tag("partition", String.valueOf(p))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)).record(nanos, TimeUnit.NANOSECONDS);
+        int slot = recentCount.getAndIncrement();
+        if (slot < recentNanos.length) {
+            recentNanos[slot] = nanos;
+        }
+    }
+
+    // p99 consumer processing time since the previous call, or -1 if nothing was processed in between
+    public long takeRecentP99Nanos() {
+        int count = Math.min(recentCount.getAndSet(0), recentNanos.length);
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(recentNanos, count);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int) Math.ceil(count * 0.99) - 1)];
+    }
+
+    // Decaying p99 of a stage (see inventory.order.stage), or -1 before the stage has run
+    public double stageP99Millis(String stage) {
+        Timer timer = stageTimers.get(stage);
+        if (timer == null) {
+            return -1;
+        }
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.OrderStatusEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Settles stock holds from the order lifecycle: confirmed orders keep their stock, cancelled or
+// unpaid ones give it back. Settling is idempotent, so a redelivered poll is harmless
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.holds.enabled", havingValue = "true")
+public class OrderStatusConsumerService {
+    private final StockHoldService stockHoldService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final Duration retryBackoff;
+
+    public OrderStatusConsumerService(
+            StockHoldService stockHoldService,
+            RedisCircuitBreaker redisCircuitBreaker,
+            @Value("${inventory.consumer.retry-backoff:1s}") Duration retryBackoff
+    ) {
+        this.stockHoldService = stockHoldService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @KafkaListener(
+            topics = "${order.status.topic.name}",
+            groupId = "${inventory.holds.consumer.group-id:inventory-service-order-status-group}",
+            containerFactory = "orderStatusKafkaListenerContainerFactory"
+    )
+    public void consumeOrderStatusEvents(
+            List<ConsumerRecord<String, OrderStatusEvent>> records,
+            Acknowledgment acknowledgment
+    ) {
+        // Holds live in Redis only; settle nothing until it is back, or a lost confirmation would let the
+        // sweeper give confirmed stock back
+        if (!redisCircuitBreaker.allowRequest()) {
+            log.warn("Redis unavailable, redelivering {} order status events in {}", records.size(), retryBackoff);
+            acknowledgment.nack(0, retryBackoff);
+            return;
+        }
+
+        Set<Long> confirmed = new LinkedHashSet<>();
+        // Release reason -> orderIds
+        Map<String, Set<Long>> released = new LinkedHashMap<>();
+        for (ConsumerRecord<String, OrderStatusEvent> record : records) {
+            OrderStatusEvent event = record.value();
+            if (event == null || event.getOrderId() == null || event.getEventType() == null) {
+                log.error("Invalid order status event received: partition={}, offset={}", record.partition(), record.offset());
+                continue;
+            }
+            switch (event.getEventType()) {
+                case OrderStatusEvent.ORDER_CONFIRMED -> confirmed.add(event.getOrderId());
+                case OrderStatusEvent.ORDER_CANCELLED, OrderStatusEvent.PAYMENT_FAILED ->
+                        released.computeIfAbsent(event.getEventType(), reason -> new LinkedHashSet<>()).add(event.getOrderId());
+                default -> log.debug("Ignoring order status event: eventType={}, orderId={}", event.getEventType(), event.getOrderId());
+            }
+        }
+
+        // The whole poll is redelivered on failure; orders already settled are recognised by their markers
+        try {
+            stockHoldService.confirm(confirmed);
+            released.forEach((reason, orderIds) -> stockHoldService.release(orderIds, reason));
+        } catch (Exception e) {
+            log.warn("Failed to settle order status events, redelivering {} events in {}: {}",
+                    records.size(), retryBackoff, e.getMessage());
+            redisCircuitBreaker.recordFailure(e);
+            acknowledgment.nack(0, retryBackoff);
+            return;
+        }
+
+        acknowledgment.acknowledge();
+        log.info("Processed {} order status events: confirmed={}, released={}", records.size(), confirmed.size(),
+                released.values().stream().mapToInt(Set::size).sum());
+    }
+}
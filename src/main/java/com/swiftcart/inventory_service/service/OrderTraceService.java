@@ -0,0 +1,113 @@
+package com.swiftcart.inventory_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+// Runtime log tracing of single orders: while an orderId or requestId is registered here, the code
+// processing it runs with MDC trace=on, which the MDCFilter turbo filter in logback-spring.xml lets
+// through at every level, DEBUG included, and which bypasses LogSampler. Registrations expire on their
+// own, so a forgotten one does not keep verbose logging on. With nothing registered, opening a scope
+// is one isEmpty check
+@Service
+@Slf4j
+public class OrderTraceService {
+    public static final String TRACE_KEY = "trace";
+    public static final String ORDER_ID_KEY = "orderId";
+    public static final String REQUEST_ID_KEY = "requestId";
+
+    private static final Duration MAX_TTL = Duration.ofHours(1);
+    private static final Scope NOOP = () -> {
+    };
+
+    private final Cache<String, Duration> tracedIds = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfter(new Expiry<String, Duration>() {
+                @Override
+                public long expireAfterCreate(String id, Duration ttl, long currentTime) {
+                    return ttl.toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String id, Duration ttl, long currentTime, long currentDuration) {
+                    return ttl.toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String id, Duration ttl, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    public static boolean isTracing() {
+        return MDC.get(TRACE_KEY) != null;
+    }
+
+    public void trace(String id, Duration ttl) {
+        Duration bounded = ttl.compareTo(MAX_TTL) > 0 ? MAX_TTL : ttl;
+        tracedIds.put(id, bounded);
+        log.info("Tracing enabled for id={} for {}", id, bounded);
+    }
+
+    public void untrace(String id) {
+        tracedIds.invalidate(id);
+        log.info("Tracing disabled for id={}", id);
+    }
+
+    public Map<String, Duration> traced() {
+        return Map.copyOf(tracedIds.asMap());
+    }
+
+    // Use with try-with-resources around the processing of one order
+    public Scope open(OrderCreatedEvent event) {
+        if (!isTraced(event)) {
+            return NOOP;
+        }
+        MDC.put(TRACE_KEY, "on");
+        MDC.put(ORDER_ID_KEY, String.valueOf(event.getOrderId()));
+        MDC.put(REQUEST_ID_KEY, event.getRequestId());
+        return OrderTraceService::clear;
+    }
+
+    // For a batch processed as one unit: the whole batch is traced if any of its orders is
+    public Scope open(Collection<OrderCreatedEvent> events) {
+        if (tracedIds.asMap().isEmpty()) {
+            return NOOP;
+        }
+        for (OrderCreatedEvent event : events) {
+            if (isTraced(event)) {
+                return open(event);
+            }
+        }
+        return NOOP;
+    }
+
+    private boolean isTraced(OrderCreatedEvent event) {
+        Map<String, Duration> ids = tracedIds.asMap();
+        if (ids.isEmpty() || event == null) {
+            return false;
+        }
+        return (event.getOrderId() != null && ids.containsKey(event.getOrderId().toString()))
+                || (event.getRequestId() != null && ids.containsKey(event.getRequestId()));
+    }
+
+    private static void clear() {
+        MDC.remove(TRACE_KEY);
+        MDC.remove(ORDER_ID_KEY);
+        MDC.remove(REQUEST_ID_KEY);
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
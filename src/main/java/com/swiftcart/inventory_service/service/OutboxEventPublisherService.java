@@ -2,56 +2,212 @@ package com.swiftcart.inventory_service.service;
 
 import com.swiftcart.inventory_service.entity.OutboxEvent;
 import com.swiftcart.inventory_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 public class OutboxEventPublisherService {
     private final OutboxEventRepository outboxEventRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;  // Changed from String to Object
+    private final KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final String topicName;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int maxInFlight;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Timer publishLagTimer;
+    private final ExecutorService publishExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "outbox-publisher"));
+    private final AtomicBoolean publishRequested = new AtomicBoolean();
+    private final AtomicLong backlog = new AtomicLong();
+    // Epoch millis of the oldest unpublished event, 0 when there is none
+    private final AtomicLong oldestUnpublishedMs = new AtomicLong();
 
     public OutboxEventPublisherService(
             OutboxEventRepository outboxEventRepository,
-            KafkaTemplate<String, Object> kafkaTemplate,  // Changed from String to Object
-            @Value("${inventory.topic.name:inventory-events}") String topicName
+            KafkaTemplate<String, byte[]> outboxKafkaTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${inventory.topic.name:inventory-events}") String topicName,
+            @Value("${inventory.outbox.batch-size:500}") int batchSize,
+            @Value("${inventory.outbox.send-timeout-ms:30000}") long sendTimeoutMs,
+            @Value("${inventory.outbox.max-in-flight:100}") int maxInFlight,
+            MeterRegistry meterRegistry
     ) {
         this.outboxEventRepository = outboxEventRepository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
         this.topicName = topicName;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxInFlight = maxInFlight;
+        // Throughput is the rate of the published counter; lag is commit-to-ack time per event
+        this.publishedCounter = Counter.builder("inventory.outbox.events.published").register(meterRegistry);
+        this.failedCounter = Counter.builder("inventory.outbox.events.failed").register(meterRegistry);
+        this.publishLagTimer = Timer.builder("inventory.outbox.publish.lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        // Read from the last refreshBacklog; the age keeps growing between refreshes if nothing is published
+        Gauge.builder("inventory.outbox.backlog", backlog, AtomicLong::get).register(meterRegistry);
+        TimeGauge.builder("inventory.outbox.oldest.age", oldestUnpublishedMs, TimeUnit.MILLISECONDS,
+                oldest -> oldest.get() == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest.get()))
+                .register(meterRegistry);
+    }
+
+    // Unpublished events as of the last refreshBacklog
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    // Queried on a schedule rather than on scrape, so a scrape never waits on the database
+    @Scheduled(fixedDelayString = "${inventory.outbox.backlog-refresh-ms:10000}")
+    public void refreshBacklog() {
+        try {
+            backlog.set(outboxEventRepository.countByPublishedFalse());
+            OffsetDateTime oldest = outboxEventRepository.findOldestUnpublishedCreatedAt();
+            oldestUnpublishedMs.set(oldest == null ? 0 : oldest.toInstant().toEpochMilli());
+        } catch (Exception e) {
+            log.warn("Failed to read outbox backlog: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOutboxEventsSaved(OutboxEventsSavedEvent event) {
+        requestPublish();
+    }
+
+    // Slow safety net for missed notifications, e.g. while the LISTEN connection was down
+    @Scheduled(fixedDelayString = "${inventory.outbox.poll-interval-ms:30000}")
+    public void pollOutboxEvents() {
+        requestPublish();
+    }
+
+    // Coalesces wakeups: at most one drain runs and at most one more is queued behind it
+    public void requestPublish() {
+        if (publishRequested.compareAndSet(false, true)) {
+            publishExecutor.execute(() -> {
+                publishRequested.set(false);
+                try {
+                    publishOutboxEvents();
+                } catch (Exception e) {
+                    log.error("Failed to publish outbox events", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publishExecutor.shutdown();
     }
 
-    @Scheduled(fixedRate = 5000)
-    @Transactional("transactionManager")
     public void publishOutboxEvents() {
-        List<OutboxEvent> events = outboxEventRepository.findByPublishedFalse();
+        // Keep claiming pages while they come back full and fully published
+        int published;
+        do {
+            published = transactionTemplate.execute(status -> publishBatch());
+        } while (published == batchSize);
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> events = outboxEventRepository.claimUnpublished(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Up to maxInFlight sends are outstanding at once; acks are collected and flushed
+        // to the database in one UPDATE per window, always from this (transaction) thread
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Queue<UUID> acknowledgedIds = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        int published = 0;
         for (OutboxEvent event : events) {
             try {
-                // Send the payload as a String (JSON)
-                kafkaTemplate.send(topicName, String.valueOf(event.getAggregateId()), event.getPayload())
+                if (!inFlight.tryAcquire(sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Outbox send window did not drain within {} ms, leaving the rest of the batch for later", sendTimeoutMs);
+                    break;
+                }
+                // Send the stored payload bytes as-is
+                sends.add(outboxKafkaTemplate.send(topicName, String.valueOf(event.getAggregateId()), event.getPayload())
                         .whenComplete((result, ex) -> {
+                            inFlight.release();
                             if (ex == null) {
-                                // Mark as published on successful send
-                                event.setPublished(true);
-                                outboxEventRepository.save(event);
-                                log.info("Published outbox event: id={}, eventType={}, aggregateId={}",
+                                acknowledgedIds.add(event.getId());
+                                publishedCounter.increment();
+                                publishLagTimer.record(Duration.between(event.getCreatedAt(), OffsetDateTime.now()));
+                                log.debug("Published outbox event: id={}, eventType={}, aggregateId={}",
                                         event.getId(), event.getEventType(), event.getAggregateId());
                             } else {
+                                failedCounter.increment();
                                 log.error("Failed to publish outbox event: id={}, error={}",
                                         event.getId(), ex.getMessage());
                             }
-                        });
+                        }));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
+                inFlight.release();
+                failedCounter.increment();
                 log.error("Failed to publish outbox event: id={}, eventType={}, aggregateId={}, error={}",
                         event.getId(), event.getEventType(), event.getAggregateId(), e.getMessage());
             }
+
+            if (acknowledgedIds.size() >= maxInFlight) {
+                published += markPublished(acknowledgedIds);
+            }
+        }
+
+        // Wait for the broker while the claimed rows are still locked by this transaction
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Not all outbox events of the batch were acknowledged: claimed={}, sent={}",
+                    events.size(), sends.size());
+        }
+
+        published += markPublished(acknowledgedIds);
+        log.info("Published {} of {} claimed outbox events", published, events.size());
+        return published;
+    }
+
+    private int markPublished(Queue<UUID> acknowledgedIds) {
+        List<UUID> ids = new ArrayList<>();
+        UUID id;
+        while ((id = acknowledgedIds.poll()) != null) {
+            ids.add(id);
+        }
+        if (!ids.isEmpty()) {
+            outboxEventRepository.markPublished(ids);
         }
+        return ids.size();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published inside the transaction that inserted outbox rows
+@Getter
+@AllArgsConstructor
+public class OutboxEventsSavedEvent {
+    private final int count;
+}
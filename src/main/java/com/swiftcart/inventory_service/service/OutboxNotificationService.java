@@ -0,0 +1,109 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+// Wakes the outbox publisher of every instance through Postgres LISTEN/NOTIFY
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.outbox.notify.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxNotificationService implements SmartLifecycle {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxEventPublisherService outboxEventPublisherService;
+    private final String channel;
+    private final int pollTimeoutMs;
+    private final long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public OutboxNotificationService(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            OutboxEventPublisherService outboxEventPublisherService,
+            @Value("${inventory.outbox.notify.channel:outbox_event}") String channel,
+            @Value("${inventory.outbox.notify.poll-timeout-ms:1000}") int pollTimeoutMs,
+            @Value("${inventory.outbox.notify.reconnect-delay-ms:5000}") long reconnectDelayMs
+    ) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxEventPublisherService = outboxEventPublisherService;
+        this.channel = channel;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    // Runs inside the transaction that saved the outbox rows; Postgres delivers it on commit
+    // and folds repeated notifications of one transaction into one
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOutboxEventsSaved(OutboxEventsSavedEvent event) {
+        jdbcTemplate.execute("NOTIFY " + channel);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "outbox-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            // Holds one pooled connection for as long as the service runs
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for outbox notifications on channel={}", channel);
+
+                // Catch up on anything inserted while we were not listening
+                outboxEventPublisherService.requestPublish();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        outboxEventPublisherService.requestPublish();
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Outbox notification listener failed, reconnecting in {} ms", reconnectDelayMs, e);
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
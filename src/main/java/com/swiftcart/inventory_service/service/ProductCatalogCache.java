@@ -0,0 +1,92 @@
+package com.swiftcart.inventory_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Remembers which productIds exist in the inventory table so order validation does not query the
+// database per order. Unknown ids are cached too, for a shorter time, since products can be added
+// behind the service's back; writes that create products mark them here, and the admin API can evict.
+@Service
+@Slf4j
+public class ProductCatalogCache {
+    private final InventoryRepository inventoryRepository;
+    private final Cache<Long, Boolean> products;
+
+    public ProductCatalogCache(
+            InventoryRepository inventoryRepository,
+            @Value("${inventory.product-cache.max-size:200000}") long maxSize,
+            @Value("${inventory.product-cache.ttl:1h}") Duration ttl,
+            @Value("${inventory.product-cache.negative-ttl:30s}") Duration negativeTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(Long productId, Boolean exists, long currentTime) {
+                        return (exists ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long productId, Boolean exists, long currentTime, long currentDuration) {
+                        return expireAfterCreate(productId, exists, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long productId, Boolean exists, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "inventory.products");
+    }
+
+    // Ids of the given products that are not in the inventory table; cache misses are loaded in one query
+    public Set<Long> findUnknown(Collection<Long> productIds) {
+        Map<Long, Boolean> exists = products.getAll(productIds, missing -> {
+            Set<Long> found = inventoryRepository.findQuantities(new ArrayList<>(missing)).keySet();
+            Map<Long, Boolean> loaded = new HashMap<>();
+            for (Long productId : missing) {
+                loaded.put(productId, found.contains(productId));
+            }
+            return loaded;
+        });
+        return exists.entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    public void markExisting(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            products.put(productId, Boolean.TRUE);
+        }
+    }
+
+    public void invalidate(Collection<Long> productIds) {
+        products.invalidateAll(productIds);
+        log.info("Evicted {} products from the product cache", productIds.size());
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        log.info("Evicted all products from the product cache");
+    }
+}
@@ -0,0 +1,195 @@
+package com.swiftcart.inventory_service.service;
+
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Trips after consecutive Redis connection failures or timeouts so callers skip Redis right away
+// (DB-only mode) instead of each waiting out the command timeout. While open, a scheduled PING
+// probes Redis; on success the stock changed meanwhile is resynced before traffic returns.
+// The breaker is per instance while the stock keys are shared, so the resync adds the deltas this
+// instance applied to the database only, never absolute quantities: reservations other instances
+// make in Redis at the same time are kept. The breaker only closes once no DB-only reservation is in
+// flight, since one committing after the resync would never reach Redis.
+@Service
+@Slf4j
+public class RedisCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        // Redis answered the probe and is being resynced; callers still stay on the database
+        HALF_OPEN
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // productId -> stock delta applied to the database only while Redis was skipped or failing
+    private final Map<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+    // DB-only reservation transactions entered and not yet completed; guarded by this
+    private int databaseOnlyInFlight;
+    private volatile long openedAt;
+
+    public RedisCircuitBreaker(
+            RedisTemplate<String, Object> redisTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${inventory.redis.circuit-breaker.failure-threshold:3}") int failureThreshold,
+            @Value("${inventory.redis.circuit-breaker.open-duration:5s}") Duration openDuration,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDuration.toMillis();
+        meterRegistry.gauge("inventory.redis.circuit.state", state, current -> current.get().ordinal());
+        meterRegistry.gaugeMapSize("inventory.redis.circuit.changed.products", Tags.empty(), pendingDeltas);
+    }
+
+    // False while open or resyncing: go to the database without touching Redis
+    public boolean allowRequest() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    // Only connection failures and timeouts count; script or data errors do not mean Redis is down
+    public void recordFailure(Throwable failure) {
+        if (!isUnavailable(failure)) {
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            log.error("Redis circuit breaker opened after {} consecutive failures, switching to DB-only reservations",
+                    consecutiveFailures.get(), failure);
+        }
+    }
+
+    // Stock deltas that reached the database but not Redis, added to Redis by the resync
+    public void recordChangedStock(Map<Long, Integer> deltas) {
+        deltas.forEach((productId, delta) -> pendingDeltas.merge(productId, delta, Integer::sum));
+    }
+
+    // Starts a DB-only reservation; false if the breaker is closed, in which case Redis decides instead.
+    // Every true must be followed by exitDatabaseOnly once the transaction has completed
+    public synchronized boolean enterDatabaseOnly() {
+        if (state.get() == State.CLOSED) {
+            return false;
+        }
+        databaseOnlyInFlight++;
+        return true;
+    }
+
+    // After completion: stock deltas of the transaction if it committed, empty if it rolled back
+    public void exitDatabaseOnly(Map<Long, Integer> deltas) {
+        // Recorded before leaving, so tryClose sees the transaction either in flight or in the pending deltas
+        recordChangedStock(deltas);
+        synchronized (this) {
+            databaseOnlyInFlight--;
+        }
+    }
+
+    private synchronized boolean tryClose() {
+        if (databaseOnlyInFlight > 0 || !pendingDeltas.isEmpty()) {
+            return false;
+        }
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.redis.circuit-breaker.probe-interval-ms:1000}")
+    public void probe() {
+        State current = state.get();
+        if (current == State.CLOSED || (current == State.OPEN && System.currentTimeMillis() - openedAt < openDurationMs)) {
+            return;
+        }
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.ping());
+        } catch (Exception e) {
+            openedAt = System.currentTimeMillis();
+            log.debug("Redis still unavailable, circuit breaker stays open");
+            return;
+        }
+
+        // Only the probe that finds Redis back publishes with nothing changed: some listeners resync state
+        // other than stock
+        boolean recovered = state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        try {
+            Map<Long, Integer> deltas = takePendingDeltas();
+            int products = deltas.size();
+            if (recovered || !deltas.isEmpty()) {
+                try {
+                    // Listeners run synchronously; a failure reopens the breaker
+                    eventPublisher.publishEvent(new RedisRecoveredEvent(deltas));
+                } catch (RuntimeException e) {
+                    // Listeners remove what they applied, so only the rest is retried
+                    recordChangedStock(deltas);
+                    throw e;
+                }
+            }
+            // Orders keep going to the database during the resync, so it only closes once quiet: nothing new
+            // changed and no DB-only transaction open. Otherwise the next probe resyncs what came in meanwhile,
+            // rather than this one waiting on the shared scheduler thread
+            if (tryClose()) {
+                log.info("Redis circuit breaker closed, resynced {} products changed since the previous probe", products);
+            } else {
+                log.info("Resync waiting for DB-only reservations to complete, circuit breaker stays half-open");
+            }
+        } catch (Exception e) {
+            openedAt = System.currentTimeMillis();
+            state.set(State.OPEN);
+            log.error("Resync after Redis recovery failed, circuit breaker stays open", e);
+        }
+    }
+
+    // Removes each entry on its own: a delta recorded meanwhile starts a new entry for the next round
+    private Map<Long, Integer> takePendingDeltas() {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (Long productId : pendingDeltas.keySet()) {
+            Integer delta = pendingDeltas.remove(productId);
+            if (delta != null && delta != 0) {
+                deltas.put(productId, delta);
+            }
+        }
+        return deltas;
+    }
+
+    private static boolean isUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RedisConnectionFailureException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof RedisConnectionException
+                    || cause instanceof RedisCommandTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
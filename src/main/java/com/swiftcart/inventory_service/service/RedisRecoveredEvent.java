@@ -0,0 +1,15 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+// Published by RedisCircuitBreaker when Redis answers again, before reservations go back to it
+@Getter
+@AllArgsConstructor
+public class RedisRecoveredEvent {
+    // productId -> stock delta applied to the database only while Redis was skipped. Listeners remove
+    // the entries they have applied, so a failed resync retries only the rest
+    private final Map<Long, Integer> stockDeltas;
+}
@@ -0,0 +1,65 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.ReplenishmentEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.replenishment.consumer.enabled", havingValue = "true")
+public class ReplenishmentConsumerService {
+    private final ReplenishmentService replenishmentService;
+    private final Duration retryBackoff;
+
+    public ReplenishmentConsumerService(
+            ReplenishmentService replenishmentService,
+            @Value("${inventory.consumer.retry-backoff:1s}") Duration retryBackoff
+    ) {
+        this.replenishmentService = replenishmentService;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @KafkaListener(
+            topics = "${inventory.replenishment.topic.name}",
+            groupId = "${inventory.replenishment.consumer.group-id:inventory-service-replenishment-group}",
+            containerFactory = "replenishmentKafkaListenerContainerFactory"
+    )
+    public void consumeReplenishmentEvents(
+            List<ConsumerRecord<String, ReplenishmentEvent>> records,
+            Acknowledgment acknowledgment
+    ) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ReplenishmentEvent> record : records) {
+            try {
+                pending.add(replenishmentService.submit(record.value()));
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid replenishment event skipped: partition={}, offset={}, error={}",
+                        record.partition(), record.offset(), e.getMessage());
+            }
+        }
+
+        // Offsets are committed only once the receipts are in the database; if applying failed the
+        // poll is redelivered, and receipts that did make it are recognised by requestId
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            log.warn("Failed to apply replenishment batch, redelivering {} events in {}: {}",
+                    records.size(), retryBackoff, e.getCause().getMessage());
+            acknowledgment.nack(0, retryBackoff);
+            return;
+        }
+        acknowledgment.acknowledge();
+        log.info("Applied batch of {} replenishment events", records.size());
+    }
+}
@@ -0,0 +1,198 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.ReplenishmentEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.repository.ReplenishmentReceiptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Stock increases from warehouse receipts (Kafka and HTTP) and catalog-wide stock syncs.
+// Receipts arriving within one window are summed per product and applied with one batched UPSERT;
+// catalog syncs are COPYed into a staging table and merged a productId range at a time, so neither
+// holds row locks that live reservations would queue behind for long. Redis follows by relative
+// adjustments, which stays correct however far it runs ahead of the database.
+@Service
+@Slf4j
+public class ReplenishmentService {
+    private final InventoryRepository inventoryRepository;
+    private final ReplenishmentReceiptRepository replenishmentReceiptRepository;
+    private final StockService stockService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final ProductCatalogCache productCatalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int catalogChunkSize;
+    private final long catalogThrottleMs;
+    private final Counter appliedReceipts;
+    private final Counter duplicateReceipts;
+    private final DistributionSummary windowProducts;
+    private final Object windowLock = new Object();
+    private Window window = new Window();
+
+    public ReplenishmentService(
+            InventoryRepository inventoryRepository,
+            ReplenishmentReceiptRepository replenishmentReceiptRepository,
+            StockService stockService,
+            RedisCircuitBreaker redisCircuitBreaker,
+            ProductCatalogCache productCatalogCache,
+            TransactionTemplate transactionTemplate,
+            @Value("${inventory.replenishment.catalog.chunk-size:5000}") int catalogChunkSize,
+            @Value("${inventory.replenishment.catalog.throttle-ms:20}") long catalogThrottleMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.replenishmentReceiptRepository = replenishmentReceiptRepository;
+        this.stockService = stockService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.productCatalogCache = productCatalogCache;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogChunkSize = catalogChunkSize;
+        this.catalogThrottleMs = catalogThrottleMs;
+        this.appliedReceipts = Counter.builder("inventory.replenishment.receipts").tag("result", "applied").register(meterRegistry);
+        this.duplicateReceipts = Counter.builder("inventory.replenishment.receipts").tag("result", "duplicate").register(meterRegistry);
+        this.windowProducts = DistributionSummary.builder("inventory.replenishment.window.products").register(meterRegistry);
+    }
+
+    // Queues the receipt for the current window; the future completes once it is committed
+    public CompletableFuture<Void> submit(ReplenishmentEvent event) {
+        return submitAll(List.of(event));
+    }
+
+    // All receipts are validated before any is queued, so an invalid one rejects the whole upload
+    public CompletableFuture<Void> submitAll(List<ReplenishmentEvent> events) {
+        Map<String, Map<Long, Integer>> receipts = new LinkedHashMap<>();
+        for (ReplenishmentEvent event : events) {
+            if (event == null || event.getRequestId() == null || event.getItems() == null || event.getItems().isEmpty()) {
+                throw new IllegalArgumentException("Replenishment needs a requestId and at least one item");
+            }
+            Map<Long, Integer> deltas = new LinkedHashMap<>();
+            for (ReplenishmentEvent.Item item : event.getItems()) {
+                if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Invalid productId or quantity: productId=" + item.getProductId());
+                }
+                deltas.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+            receipts.putIfAbsent(event.getRequestId(), deltas);
+        }
+
+        synchronized (windowLock) {
+            // A requestId repeated within the window counts once, like one repeated across windows
+            receipts.forEach(window.receipts::putIfAbsent);
+            return window.applied;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.replenishment.window-ms:200}")
+    public void flush() {
+        Window flushing;
+        synchronized (windowLock) {
+            if (window.receipts.isEmpty()) {
+                return;
+            }
+            flushing = window;
+            window = new Window();
+        }
+
+        try {
+            apply(flushing.receipts);
+            flushing.applied.complete(null);
+        } catch (Exception e) {
+            log.error("Failed to apply {} replenishment receipts", flushing.receipts.size(), e);
+            flushing.applied.completeExceptionally(e);
+        }
+    }
+
+    private void apply(Map<String, Map<Long, Integer>> receipts) {
+        Map<Long, Integer> deltas = transactionTemplate.execute(status -> {
+            Set<String> claimed = replenishmentReceiptRepository.claimNew(receipts.keySet());
+            Map<Long, Integer> summed = new LinkedHashMap<>();
+            for (String requestId : claimed) {
+                receipts.get(requestId).forEach((productId, quantity) -> summed.merge(productId, quantity, Integer::sum));
+            }
+            inventoryRepository.upsertStock(summed);
+            appliedReceipts.increment(claimed.size());
+            duplicateReceipts.increment(receipts.size() - claimed.size());
+            return summed;
+        });
+        windowProducts.record(deltas.size());
+        productCatalogCache.markExisting(deltas.keySet());
+        mirrorToRedis(deltas);
+        log.info("Applied replenishment window: receipts={}, products={}", receipts.size(), deltas.size());
+    }
+
+    // Replaces stock with the absolute quantities of a productId,quantity CSV (products not in it are left alone)
+    public CatalogSyncResult syncCatalog(Reader csv) {
+        return inventoryRepository.withCatalogSyncLock(() -> {
+            long start = System.nanoTime();
+            long staged = inventoryRepository.stageCatalog(csv);
+
+            int changed = 0;
+            long after = Long.MIN_VALUE;
+            Long end;
+            while ((end = inventoryRepository.nextStagedChunkEnd(after, catalogChunkSize)) != null) {
+                long from = after;
+                long to = end;
+                // One short transaction per chunk: a reservation waits on at most one chunk's row locks
+                Map<Long, Integer> deltas = transactionTemplate.execute(status -> inventoryRepository.mergeStagedChunk(from, to));
+                productCatalogCache.markExisting(deltas.keySet());
+                mirrorToRedis(deltas);
+                changed += deltas.size();
+                after = end;
+                TimeUnit.MILLISECONDS.sleep(catalogThrottleMs);
+            }
+
+            CatalogSyncResult result = new CatalogSyncResult(staged, changed, (System.nanoTime() - start) / 1_000_000);
+            log.info("Catalog stock sync finished: rows={}, changed={}, took {} ms",
+                    result.getRows(), result.getChanged(), result.getDurationMs());
+            return result;
+        });
+    }
+
+    private void mirrorToRedis(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!redisCircuitBreaker.allowRequest()) {
+            redisCircuitBreaker.recordChangedStock(deltas);
+            return;
+        }
+        try {
+            // Unjournaled: the database already has these. Products not in Redis yet are seeded from it later
+            stockService.adjustStock(deltas, false);
+            redisCircuitBreaker.recordSuccess();
+        } catch (Exception e) {
+            log.warn("Failed to mirror replenishment to Redis for {} products", deltas.size());
+            redisCircuitBreaker.recordFailure(e);
+            redisCircuitBreaker.recordChangedStock(deltas);
+        }
+    }
+
+    private static class Window {
+        // requestId -> productId -> delta, in arrival order
+        private final Map<String, Map<Long, Integer>> receipts = new LinkedHashMap<>();
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CatalogSyncResult {
+        private final long rows;
+        private final int changed;
+        private final long durationMs;
+    }
+}
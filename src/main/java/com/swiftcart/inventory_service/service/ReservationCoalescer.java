@@ -0,0 +1,184 @@
+package com.swiftcart.inventory_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Group commit for same-product reservations: requests arriving within the window (or until the batch
+// is full) are merged into one script call, and each caller gets back its own result. A caller that
+// gives up waiting is left out of a batch not flushed yet, and stock granted to it later is given back
+@Slf4j
+class ReservationCoalescer {
+
+    interface BatchReserver {
+        // Returns one result per quantity, granted in the given order
+        List<BatchReservationResult.ItemResult> reserve(Long productId, List<Integer> quantities);
+    }
+
+    interface StockReleaser {
+        // Gives back stock granted to callers that had already given up
+        void release(Long productId, int quantity);
+    }
+
+    private final BatchReserver reserver;
+    private final StockReleaser releaser;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final long timeoutMs;
+    private final ScheduledExecutorService flushExecutor;
+    private final DistributionSummary batchSizes;
+    private final Counter abandonedCounter;
+    // The batch currently collecting requests for each product
+    private final Map<Long, Batch> openBatches = new ConcurrentHashMap<>();
+
+    ReservationCoalescer(BatchReserver reserver, StockReleaser releaser, long windowMicros, int maxBatchSize,
+                         int flushThreads, long timeoutMs, MeterRegistry meterRegistry) {
+        this.reserver = reserver;
+        this.releaser = releaser;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flushExecutor = Executors.newScheduledThreadPool(flushThreads,
+                runnable -> new Thread(runnable, "reservation-coalescer-" + threadCount.incrementAndGet()));
+        this.batchSizes = DistributionSummary.builder("inventory.stock.coalesced.batch.size")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.abandonedCounter = Counter.builder("inventory.stock.coalesced.abandoned")
+                .description("Coalesced reservations whose caller gave up before the result arrived")
+                .register(meterRegistry);
+    }
+
+    BatchReservationResult.ItemResult reserve(Long productId, Integer quantity) {
+        PendingReservation pending = new PendingReservation(quantity);
+        Batch[] fullBatch = new Batch[1];
+        openBatches.compute(productId, (id, batch) -> {
+            if (batch == null) {
+                Batch opened = new Batch(id);
+                flushExecutor.schedule(() -> flushIfOpen(opened), windowMicros, TimeUnit.MICROSECONDS);
+                batch = opened;
+            }
+            batch.pending.add(pending);
+            if (batch.pending.size() >= maxBatchSize) {
+                // Close it now; the timer finds it gone and does nothing
+                fullBatch[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+
+        if (fullBatch[0] != null) {
+            flush(fullBatch[0]);
+        }
+
+        try {
+            return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(pending, new RuntimeException("Interrupted while waiting for coalesced reservation", e));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Redis stock reservation failed", e.getCause());
+        } catch (TimeoutException e) {
+            abandon(pending, new RuntimeException("Coalesced reservation timed out for productId: " + productId, e));
+        }
+        // The result arrived just as the caller gave up
+        return pending.result.join();
+    }
+
+    // Fails the caller's future so flush() knows nobody is waiting for it any more. Does nothing when the
+    // result won the race, so the caller can still use it
+    private void abandon(PendingReservation pending, RuntimeException failure) {
+        if (pending.result.completeExceptionally(failure)) {
+            abandonedCounter.increment();
+            throw failure;
+        }
+    }
+
+    void shutdown() {
+        flushExecutor.shutdown();
+        // Flush what is still collecting so no caller is left waiting for its timeout
+        openBatches.keySet().forEach(productId -> {
+            Batch batch = openBatches.remove(productId);
+            if (batch != null) {
+                flush(batch);
+            }
+        });
+    }
+
+    private void flushIfOpen(Batch batch) {
+        if (openBatches.remove(batch.productId, batch)) {
+            flush(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        // Callers that already gave up are left out
+        List<PendingReservation> pending = batch.pending.stream()
+                .filter(reservation -> !reservation.result.isDone())
+                .toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+        batchSizes.record(pending.size());
+        List<BatchReservationResult.ItemResult> results;
+        try {
+            List<Integer> quantities = new ArrayList<>(pending.size());
+            pending.forEach(reservation -> quantities.add(reservation.quantity));
+            results = reserver.reserve(batch.productId, quantities);
+        } catch (Exception e) {
+            pending.forEach(reservation -> reservation.result.completeExceptionally(e));
+            return;
+        }
+
+        int unclaimed = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            BatchReservationResult.ItemResult result = results.get(i);
+            if (!pending.get(i).result.complete(result) && result.getStatus() == BatchReservationResult.ItemStatus.AVAILABLE) {
+                // The caller timed out while the script ran and its order will be redelivered
+                unclaimed += result.getRequestedQuantity();
+            }
+        }
+        log.debug("Coalesced {} reservations for productId: {} into one script call", pending.size(), batch.productId);
+        if (unclaimed > 0) {
+            try {
+                releaser.release(batch.productId, unclaimed);
+                log.warn("Gave back {} units reserved for callers that timed out, productId: {}", unclaimed, batch.productId);
+            } catch (Exception e) {
+                log.error("Failed to give back {} units reserved for callers that timed out, productId: {}",
+                        unclaimed, batch.productId, e);
+            }
+        }
+    }
+
+    private static class Batch {
+        private final Long productId;
+        // Only touched inside openBatches.compute until the batch is removed from the map
+        private final List<PendingReservation> pending = new ArrayList<>();
+
+        private Batch(Long productId) {
+            this.productId = productId;
+        }
+    }
+
+    private static class PendingReservation {
+        private final Integer quantity;
+        private final CompletableFuture<BatchReservationResult.ItemResult> result = new CompletableFuture<>();
+
+        private PendingReservation(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
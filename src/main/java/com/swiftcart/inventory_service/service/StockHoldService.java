@@ -0,0 +1,392 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.entity.PendingStockHold;
+import com.swiftcart.inventory_service.repository.PendingStockHoldRepository;
+import com.swiftcart.inventory_service.repository.ReplenishmentReceiptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+// Two-phase reservations: stock reserved for an order is held in Redis until the order is confirmed
+// (hold dropped), cancelled (stock given back) or the hold expires. Holds are indexed in a sorted set
+// scored by deadline, so the sweeper only ever reads the expired head of it, a bounded batch per call.
+// Holds that cannot be created in Redis are kept in the database until the sweeper creates them, and a
+// release stays in Redis next to the stock it gave back until the database has recorded it.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.holds.enabled", havingValue = "true")
+public class StockHoldService {
+    static final String EXPIRY_KEY = "holds:expiry";
+    static final String UNRECORDED_KEY = "holds:unrecorded";
+    static final String HOLD_KEY_PREFIX = "hold:order:";
+    // Release receipts share the replenishment receipt table: both are stock increases applied once
+    static final String RELEASE_RECEIPT_PREFIX = "hold-release:";
+
+    public static final String REASON_EXPIRED = "HOLD_EXPIRED";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final DefaultRedisScript<Long> createHoldsScript;
+    private final DefaultRedisScript<List> settleHoldsScript;
+    private final StockService stockService;
+    private final InventoryService inventoryService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final PendingStockHoldRepository pendingStockHoldRepository;
+    private final ReplenishmentReceiptRepository replenishmentReceiptRepository;
+    private final TransactionTemplate transactionTemplate;
+    // After commit the order's transaction is done, so pending holds are written in one of their own
+    private final TransactionTemplate newTransactionTemplate;
+    private final long ttlMs;
+    private final long recordRetryDelayMs;
+    private final int sweepBatchSize;
+    private final int sweepMaxBatches;
+    private final Counter createdCounter;
+    private final Counter confirmedCounter;
+    private final Counter releasedCounter;
+    private final Counter expiredCounter;
+    private final Counter pendingCounter;
+    private final Counter droppedCounter;
+
+    public StockHoldService(
+            RedisTemplate<String, Object> redisTemplate,
+            DefaultRedisScript<Long> createHoldsScript,
+            DefaultRedisScript<List> settleHoldsScript,
+            StockService stockService,
+            InventoryService inventoryService,
+            RedisCircuitBreaker redisCircuitBreaker,
+            PendingStockHoldRepository pendingStockHoldRepository,
+            ReplenishmentReceiptRepository replenishmentReceiptRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.holds.ttl:15m}") Duration ttl,
+            @Value("${inventory.holds.record-retry-delay:30s}") Duration recordRetryDelay,
+            @Value("${inventory.holds.sweep-batch-size:500}") int sweepBatchSize,
+            @Value("${inventory.holds.sweep-max-batches:20}") int sweepMaxBatches,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.createHoldsScript = createHoldsScript;
+        this.settleHoldsScript = settleHoldsScript;
+        this.stockService = stockService;
+        this.inventoryService = inventoryService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.pendingStockHoldRepository = pendingStockHoldRepository;
+        this.replenishmentReceiptRepository = replenishmentReceiptRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttlMs = ttl.toMillis();
+        this.recordRetryDelayMs = recordRetryDelay.toMillis();
+        this.sweepBatchSize = sweepBatchSize;
+        this.sweepMaxBatches = sweepMaxBatches;
+        this.createdCounter = holdCounter(meterRegistry, "created");
+        this.confirmedCounter = holdCounter(meterRegistry, "confirmed");
+        this.releasedCounter = holdCounter(meterRegistry, "released");
+        this.expiredCounter = holdCounter(meterRegistry, "expired");
+        this.pendingCounter = holdCounter(meterRegistry, "pending");
+        this.droppedCounter = holdCounter(meterRegistry, "dropped");
+    }
+
+    private static Counter holdCounter(MeterRegistry meterRegistry, String action) {
+        return Counter.builder("inventory.holds").tag("action", action).register(meterRegistry);
+    }
+
+    // While Redis is skipped the holds are written with the order itself, so they commit or roll back with it
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onStockReservedBeforeCommit(StockReservedEvent event) {
+        if (!redisCircuitBreaker.allowRequest()) {
+            pendingStockHoldRepository.insertAll(toPending(holdsOf(event)));
+        }
+    }
+
+    // After commit, so a rolled-back order never leaves a hold that would later release stock twice.
+    // Holds that cannot be created now (Redis down or the script failed) are kept in the database for the
+    // sweeper, unless they already are; a confirm or cancel that gets there first is recorded by
+    // settle_holds.lua and honoured then
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockReserved(StockReservedEvent event) {
+        List<Hold> holds = holdsOf(event);
+        if (redisCircuitBreaker.allowRequest()) {
+            try {
+                createHolds(holds);
+                return;
+            } catch (Exception e) {
+                log.error("Failed to create holds for orderIds: {}", event.getReservedByOrder().keySet(), e);
+                redisCircuitBreaker.recordFailure(e);
+            }
+        }
+        try {
+            // Already there if the breaker was open before commit; ON CONFLICT makes the repeat harmless
+            newTransactionTemplate.executeWithoutResult(status -> pendingStockHoldRepository.insertAll(toPending(holds)));
+            pendingCounter.increment(holds.size());
+            log.warn("Holds not created, retrying later for orderIds: {}", event.getReservedByOrder().keySet());
+        } catch (Exception e) {
+            // Their stock stays reserved until an order status event settles them, or for good
+            droppedCounter.increment(holds.size());
+            log.error("Holds neither created nor kept for retry, no hold for orderIds: {}", event.getReservedByOrder().keySet(), e);
+        }
+    }
+
+    private List<Hold> holdsOf(StockReservedEvent event) {
+        long deadline = System.currentTimeMillis() + ttlMs;
+        List<Hold> holds = new ArrayList<>(event.getReservedByOrder().size());
+        event.getReservedByOrder().forEach((orderId, quantities) -> holds.add(new Hold(orderId, deadline, quantities)));
+        return holds;
+    }
+
+    // A batch of pending holds per transaction: created in Redis, then deleted. Their row locks keep other
+    // sweepers off them; if Redis fails the transaction rolls back and they stay for the next sweep
+    private void retryPendingHolds() {
+        for (int batch = 0; batch < sweepMaxBatches; batch++) {
+            Integer retried = transactionTemplate.execute(status -> {
+                List<PendingStockHold> pending = pendingStockHoldRepository.claimBatch(sweepBatchSize);
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                createHolds(pending.stream().map(StockHoldService::fromPending).toList());
+                pendingStockHoldRepository.deleteAllByIdInBatch(pending.stream().map(PendingStockHold::getOrderId).toList());
+                return pending.size();
+            });
+            if (retried == null || retried < sweepBatchSize) {
+                break;
+            }
+        }
+    }
+
+    // Safe to repeat: create_holds.lua sets quantities and skips holds already settled
+    private void createHolds(List<Hold> holds) {
+        List<Object> args = new ArrayList<>();
+        args.add(HOLD_KEY_PREFIX);
+        for (Hold hold : holds) {
+            args.add(hold.orderId.toString());
+            args.add(String.valueOf(hold.deadline));
+            args.add(String.valueOf(hold.quantities.size()));
+            hold.quantities.forEach((productId, quantity) -> {
+                args.add(StockService.stockKey(productId));
+                args.add(quantity.toString());
+            });
+        }
+
+        Long created = redisTemplate.execute(createHoldsScript, RedisSerializer.string(), null,
+                Collections.singletonList(EXPIRY_KEY), args.toArray());
+        createdCounter.increment(created == null ? 0 : created);
+    }
+
+    public void confirm(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<Long, Integer>> confirmed = settle("confirm", "", toArgs(orderIds)).released;
+        confirmedCounter.increment(confirmed.size());
+        if (confirmed.size() < orderIds.size()) {
+            // Either the sweeper already gave their stock back, or their hold is not created yet and
+            // now will not be (or they were never held)
+            log.warn("Orders confirmed without an outstanding hold: {}",
+                    orderIds.stream().filter(orderId -> !confirmed.containsKey(orderId)).toList());
+        }
+    }
+
+    public void release(Collection<Long> orderIds, String reason) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Settlement settlement = settle("release", reason, toArgs(orderIds));
+        releasedCounter.increment(settlement.released.size());
+        record(settlement);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.holds.sweep-interval-ms:1000}")
+    public void sweepExpired() {
+        if (!redisCircuitBreaker.allowRequest()) {
+            return;
+        }
+        try {
+            // First, so a retried hold already past its deadline is expired by this same sweep
+            retryPendingHolds();
+            for (int batch = 0; batch < sweepMaxBatches; batch++) {
+                Settlement settlement = settle("expire", REASON_EXPIRED, List.of(String.valueOf(sweepBatchSize)));
+                expiredCounter.increment(settlement.released.size());
+                record(settlement);
+                if (settlement.released.size() < sweepBatchSize) {
+                    break;
+                }
+            }
+            retryUnrecordedReleases();
+        } catch (Exception e) {
+            log.error("Hold expiry sweep failed", e);
+            redisCircuitBreaker.recordFailure(e);
+        }
+    }
+
+    // Releases still unrecorded well after they were settled: the database write failed, or the instance
+    // that settled them stopped before making it
+    private void retryUnrecordedReleases() {
+        for (int batch = 0; batch < sweepMaxBatches; batch++) {
+            Settlement settlement = settle("retry", "",
+                    List.of(String.valueOf(System.currentTimeMillis() - recordRetryDelayMs), String.valueOf(sweepBatchSize)));
+            if (!settlement.released.isEmpty()) {
+                log.warn("Retrying {} hold releases not recorded in the database", settlement.released.size());
+            }
+            record(settlement);
+            if (settlement.released.size() < sweepBatchSize) {
+                break;
+            }
+        }
+    }
+
+    private Settlement settle(String mode, String reason, List<String> modeArgs) {
+        List<Object> args = new ArrayList<>(modeArgs.size() + 6);
+        args.add(mode);
+        args.add(HOLD_KEY_PREFIX);
+        args.add(stockService.isWriteBehindEnabled() ? stockService.getWriteBehindStream() : "");
+        // Long enough to outlast the retries of a hold that was created before the settlement
+        args.add(String.valueOf(ttlMs));
+        args.add(reason);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.addAll(modeArgs);
+
+        List<Object> result = redisTemplate.execute(settleHoldsScript, RedisSerializer.string(), RedisSerializer.string(),
+                List.of(EXPIRY_KEY, UNRECORDED_KEY), args.toArray());
+        Settlement settlement = new Settlement();
+        if (result == null) {
+            return settlement;
+        }
+        int i = 0;
+        while (i < result.size()) {
+            Long orderId = toLong(result.get(i));
+            String orderReason = result.get(i + 1).toString();
+            int itemCount = toLong(result.get(i + 2)).intValue();
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            Map<Long, Integer> notApplied = new LinkedHashMap<>();
+            for (int j = 0; j < itemCount; j++) {
+                int offset = i + 3 + 3 * j;
+                Long productId = StockService.productIdFromKey(result.get(offset).toString());
+                int quantity = toLong(result.get(offset + 1)).intValue();
+                quantities.merge(productId, quantity, Integer::sum);
+                if (toLong(result.get(offset + 2)) == 0) {
+                    notApplied.merge(productId, quantity, Integer::sum);
+                }
+            }
+            settlement.released.put(orderId, quantities);
+            settlement.notAppliedInRedis.put(orderId, notApplied);
+            settlement.reasons.put(orderId, orderReason);
+            i += 3 + 3 * itemCount;
+        }
+        return settlement;
+    }
+
+    // Redis was already updated by the script; the database follows, unless the journal carries it there.
+    // Each order's release is claimed as a receipt in the same transaction, so a retry after a failure to
+    // forget it in Redis is not counted twice. On failure the release stays unrecorded in Redis for the sweeper
+    private void record(Settlement settlement) {
+        Map<String, List<Long>> orderIdsByReason = new LinkedHashMap<>();
+        settlement.reasons.forEach((orderId, reason) -> orderIdsByReason.computeIfAbsent(reason, r -> new ArrayList<>()).add(orderId));
+
+        orderIdsByReason.forEach((reason, orderIds) -> {
+            try {
+                int recorded = transactionTemplate.execute(status -> {
+                    Set<String> claimed = replenishmentReceiptRepository.claimNew(
+                            orderIds.stream().map(orderId -> RELEASE_RECEIPT_PREFIX + orderId).toList());
+                    Map<Long, Map<Long, Integer>> releasedByOrder = new LinkedHashMap<>();
+                    Map<Long, Integer> databaseDeltas = new LinkedHashMap<>();
+                    for (Long orderId : orderIds) {
+                        if (!claimed.contains(RELEASE_RECEIPT_PREFIX + orderId)) {
+                            continue;
+                        }
+                        releasedByOrder.put(orderId, settlement.released.get(orderId));
+                        Map<Long, Integer> deltas = stockService.isWriteBehindEnabled()
+                                ? settlement.notAppliedInRedis.get(orderId)
+                                : settlement.released.get(orderId);
+                        deltas.forEach((productId, quantity) -> databaseDeltas.merge(productId, quantity, Integer::sum));
+                    }
+                    if (!releasedByOrder.isEmpty()) {
+                        inventoryService.recordStockReleased(releasedByOrder, databaseDeltas, reason);
+                    }
+                    return releasedByOrder.size();
+                });
+                log.info("Released holds of {} orders, reason={}, already recorded={}", orderIds.size(), reason,
+                        orderIds.size() - recorded);
+            } catch (Exception e) {
+                log.error("Released holds in Redis but failed to record them in the database, retrying later: orderIds={}, reason={}",
+                        orderIds, reason, e);
+                return;
+            }
+            try {
+                settle("recorded", "", toArgs(orderIds));
+            } catch (Exception e) {
+                // The receipts keep the retry from counting them again
+                log.warn("Failed to mark hold releases as recorded: orderIds={}", orderIds, e);
+            }
+        });
+    }
+
+    private static List<String> toArgs(Collection<Long> orderIds) {
+        return orderIds.stream().map(String::valueOf).toList();
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Long number ? number : Long.valueOf(value.toString());
+    }
+
+    private static List<PendingStockHold> toPending(List<Hold> holds) {
+        List<PendingStockHold> pending = new ArrayList<>(holds.size());
+        for (Hold hold : holds) {
+            StringJoiner items = new StringJoiner(",");
+            hold.quantities.forEach((productId, quantity) -> items.add(productId + ":" + quantity));
+            pending.add(new PendingStockHold(hold.orderId, hold.deadline, items.toString()));
+        }
+        return pending;
+    }
+
+    private static Hold fromPending(PendingStockHold pending) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (String item : pending.getItems().split(",")) {
+            int separator = item.indexOf(':');
+            quantities.put(Long.valueOf(item.substring(0, separator)), Integer.valueOf(item.substring(separator + 1)));
+        }
+        return new Hold(pending.getOrderId(), pending.getDeadline(), quantities);
+    }
+
+    private static class Hold {
+        private final Long orderId;
+        private final long deadline;
+        // productId -> quantity
+        private final Map<Long, Integer> quantities;
+
+        private Hold(Long orderId, long deadline, Map<Long, Integer> quantities) {
+            this.orderId = orderId;
+            this.deadline = deadline;
+            this.quantities = quantities;
+        }
+    }
+
+    private static class Settlement {
+        // orderId -> productId -> quantity, for every hold settled by the call
+        private final Map<Long, Map<Long, Integer>> released = new LinkedHashMap<>();
+        // orderId -> productId -> quantity released while the stock key was missing from Redis, so only
+        // the database can take them
+        private final Map<Long, Map<Long, Integer>> notAppliedInRedis = new LinkedHashMap<>();
+        // orderId -> release reason
+        private final Map<Long, String> reasons = new LinkedHashMap<>();
+    }
+}
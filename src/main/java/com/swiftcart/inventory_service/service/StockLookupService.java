@@ -0,0 +1,77 @@
+package com.swiftcart.inventory_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Bulk stock reads for the lookup API. Answers come from the in-process replica; only entries that
+// are unknown or older than max-age are read from Redis (one pipeline) before answering, so the
+// reported maxAgeMs stays within max-age unless Redis is unavailable.
+@Service
+@Slf4j
+public class StockLookupService {
+    private final StockReplica stockReplica;
+    private final StockService stockService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final long maxAgeMs;
+    private final Counter replicaHits;
+    private final Counter redisReads;
+
+    public StockLookupService(
+            StockReplica stockReplica,
+            StockService stockService,
+            RedisCircuitBreaker redisCircuitBreaker,
+            @Value("${inventory.stock.replica.max-age-ms:1000}") long maxAgeMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.stockReplica = stockReplica;
+        this.stockService = stockService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.maxAgeMs = maxAgeMs;
+        this.replicaHits = Counter.builder("inventory.stock.lookup.products").tag("source", "replica").register(meterRegistry);
+        this.redisReads = Counter.builder("inventory.stock.lookup.products").tag("source", "redis").register(meterRegistry);
+        meterRegistry.gauge("inventory.stock.replica.size", stockReplica, StockReplica::size);
+    }
+
+    public StockReplica.Snapshot lookup(long[] productIds) {
+        int[] quantities = new int[productIds.length];
+        long[] agesMs = new long[productIds.length];
+        long version = stockReplica.lookup(productIds, quantities, agesMs);
+
+        List<Long> stale = new ArrayList<>();
+        for (int i = 0; i < productIds.length; i++) {
+            if (agesMs[i] > maxAgeMs) {
+                stale.add(productIds[i]);
+            }
+        }
+        replicaHits.increment(productIds.length - stale.size());
+
+        if (!stale.isEmpty() && redisCircuitBreaker.allowRequest()) {
+            try {
+                Map<Long, Long> fresh = stockService.readStock(stale);
+                redisCircuitBreaker.recordSuccess();
+                redisReads.increment(stale.size());
+                stockReplica.updateAll(fresh);
+                version = stockReplica.lookup(productIds, quantities, agesMs);
+            } catch (Exception e) {
+                // Serve what the replica has; the age in the answer tells the caller how old it is
+                redisCircuitBreaker.recordFailure(e);
+                log.warn("Failed to refresh {} stale stock entries from Redis: {}", stale.size(), e.getMessage());
+            }
+        }
+
+        long maxAge = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            if (quantities[i] != StockReplica.UNKNOWN) {
+                maxAge = Math.max(maxAge, agesMs[i]);
+            }
+        }
+        return new StockReplica.Snapshot(version, productIds, quantities, maxAge);
+    }
+}
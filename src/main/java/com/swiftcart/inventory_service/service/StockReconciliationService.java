@@ -0,0 +1,302 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Walks the stock keys with SCAN a slice at a time and compares them with the inventory table in
+// batched IN queries. The SCAN cursor is kept in Redis, so a pass resumes where the last run (on any
+// instance) stopped. Drift is confirmed by a second read before it is reported or repaired.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.stock.reconciliation.enabled", havingValue = "true")
+public class StockReconciliationService {
+    private static final String CURSOR_KEY = "stock:reconciliation:cursor";
+    private static final String LOCK_KEY = "stock:reconciliation:lock";
+
+    public enum Policy {
+        // Only log and count drift
+        REPORT,
+        // Make Redis match the database (compare-and-set)
+        REPAIR_REDIS,
+        // Make the database match Redis by adding the observed difference
+        REPAIR_DB
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final DefaultRedisScript<Long> lockReleaseScript;
+    private final StockService stockService;
+    private final InventoryRepository inventoryRepository;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final Policy policy;
+    private final int batchSize;
+    private final int keysPerRun;
+    private final long throttleMs;
+    private final long confirmDelayMs;
+    private final Duration lockTtl;
+    private final Counter checkedCounter;
+    private final Counter driftedCounter;
+    private final Counter missingInDatabaseCounter;
+    private final Counter repairedCounter;
+    // Runs sleep between pages and before confirm reads, so they get a thread of their own rather than
+    // stalling the breaker probe, hold sweeper and flushes that share the single scheduler thread
+    private final ExecutorService reconciliationExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "stock-reconciliation"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong lastPassDriftedProducts = new AtomicLong();
+    private final AtomicLong lastPassDriftUnits = new AtomicLong();
+    private long passDriftedProducts;
+    private long passDriftUnits;
+
+    public StockReconciliationService(
+            RedisTemplate<String, Object> redisTemplate,
+            DefaultRedisScript<Long> lockReleaseScript,
+            StockService stockService,
+            InventoryRepository inventoryRepository,
+            RedisCircuitBreaker redisCircuitBreaker,
+            @Value("${inventory.stock.reconciliation.policy:REPORT}") Policy policy,
+            @Value("${inventory.stock.reconciliation.batch-size:500}") int batchSize,
+            @Value("${inventory.stock.reconciliation.keys-per-run:10000}") int keysPerRun,
+            @Value("${inventory.stock.reconciliation.throttle-ms:50}") long throttleMs,
+            @Value("${inventory.stock.reconciliation.confirm-delay-ms:200}") long confirmDelayMs,
+            @Value("${inventory.stock.reconciliation.lock-ttl:5m}") Duration lockTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.lockReleaseScript = lockReleaseScript;
+        this.stockService = stockService;
+        this.inventoryRepository = inventoryRepository;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        // Redis runs ahead of the database by the unflushed journal, so neither side can be repaired blindly
+        this.policy = stockService.isWriteBehindEnabled() ? Policy.REPORT : policy;
+        if (this.policy != policy) {
+            log.warn("Write-behind is enabled, stock reconciliation only reports drift");
+        }
+        this.batchSize = batchSize;
+        this.keysPerRun = keysPerRun;
+        this.throttleMs = throttleMs;
+        this.confirmDelayMs = confirmDelayMs;
+        this.lockTtl = lockTtl;
+        this.checkedCounter = Counter.builder("inventory.stock.reconciliation.checked").register(meterRegistry);
+        this.driftedCounter = Counter.builder("inventory.stock.reconciliation.drifted").register(meterRegistry);
+        this.missingInDatabaseCounter = Counter.builder("inventory.stock.reconciliation.missing.in.db").register(meterRegistry);
+        this.repairedCounter = Counter.builder("inventory.stock.reconciliation.repaired")
+                .tag("policy", this.policy.name())
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.stock.reconciliation.last.pass.drifted.products", lastPassDriftedProducts);
+        meterRegistry.gauge("inventory.stock.reconciliation.last.pass.drift.units", lastPassDriftUnits);
+    }
+
+    // Hands the run to the reconciliation thread; a tick that finds the last run still going is skipped
+    @Scheduled(fixedDelayString = "${inventory.stock.reconciliation.interval-ms:60000}")
+    public void requestReconcile() {
+        if (running.compareAndSet(false, true)) {
+            reconciliationExecutor.execute(() -> {
+                try {
+                    reconcile();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupts a run mid-sleep; the saved cursor lets the next one resume
+        reconciliationExecutor.shutdownNow();
+    }
+
+    public void reconcile() {
+        if (!redisCircuitBreaker.allowRequest()) {
+            return;
+        }
+        // One instance at a time; the lock expires on its own if this one dies mid-run
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, lockTtl);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            reconcileSlice();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Stock reconciliation run failed", e);
+        } finally {
+            releaseLock(token);
+        }
+    }
+
+    // Only if still ours: after a run that outlived the TTL the lock may belong to another instance
+    private void releaseLock(String token) {
+        try {
+            Long released = redisTemplate.execute(lockReleaseScript, List.of(LOCK_KEY), token);
+            if (!Long.valueOf(1).equals(released)) {
+                log.warn("Stock reconciliation lock expired before the run finished, lockTtl={}", lockTtl);
+            }
+        } catch (Exception e) {
+            log.error("Failed to release stock reconciliation lock", e);
+        }
+    }
+
+    private void reconcileSlice() throws InterruptedException {
+        Object storedCursor = redisTemplate.opsForValue().get(CURSOR_KEY);
+        String cursor = storedCursor == null ? ScanCursor.INITIAL.getCursor() : storedCursor.toString();
+
+        int scanned = 0;
+        do {
+            KeyScanCursor<byte[]> page = scan(cursor);
+            cursor = page.isFinished() ? ScanCursor.INITIAL.getCursor() : page.getCursor();
+
+            Set<Long> productIds = new LinkedHashSet<>();
+            for (byte[] key : page.getKeys()) {
+                productIds.add(StockService.productIdFromKey(RedisSerializer.string().deserialize(key)));
+            }
+            scanned += page.getKeys().size();
+            compareBatch(new ArrayList<>(productIds));
+
+            // Saved after each page so a crash or restart only repeats one page
+            redisTemplate.opsForValue().set(CURSOR_KEY, cursor);
+            if (page.isFinished()) {
+                finishPass();
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(throttleMs);
+        } while (scanned < keysPerRun);
+        log.debug("Stock reconciliation run scanned {} keys, cursor={}", scanned, cursor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private KeyScanCursor<byte[]> scan(String cursor) {
+        // Spring's Cursor cannot start from a saved position, so use the Lettuce SCAN directly
+        return redisTemplate.execute((RedisCallback<KeyScanCursor<byte[]>>) connection -> {
+            RedisClusterAsyncCommands<byte[], byte[]> commands =
+                    (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            try {
+                return commands.scan(ScanCursor.of(cursor),
+                                ScanArgs.Builder.matches(StockService.STOCK_KEY_PREFIX + "*").limit(batchSize))
+                        .get(lockTtl.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("SCAN failed at cursor " + cursor, e);
+            }
+        });
+    }
+
+    private void compareBatch(List<Long> productIds) throws InterruptedException {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        checkedCounter.increment(productIds.size());
+
+        Map<Long, Drift> drift = findDrift(productIds);
+        if (drift.isEmpty()) {
+            return;
+        }
+
+        // A reservation may have landed between the two reads; only drift that holds still is real
+        TimeUnit.MILLISECONDS.sleep(confirmDelayMs);
+        Map<Long, Drift> confirmed = findDrift(new ArrayList<>(drift.keySet()));
+        confirmed.entrySet().removeIf(entry -> entry.getValue().difference() != drift.get(entry.getKey()).difference());
+
+        confirmed.forEach((productId, confirmedDrift) -> {
+            if (confirmedDrift.databaseQuantity == null) {
+                missingInDatabaseCounter.increment();
+                log.warn("Stock reconciliation: productId={} is in Redis but not in the database", productId);
+                return;
+            }
+            driftedCounter.increment();
+            passDriftedProducts++;
+            passDriftUnits += Math.abs(confirmedDrift.difference());
+            log.warn("Stock drift: productId={}, redis={}, db={}, difference={}", productId,
+                    confirmedDrift.redisQuantity, confirmedDrift.databaseQuantity, confirmedDrift.difference());
+            repair(productId, confirmedDrift);
+        });
+    }
+
+    private Map<Long, Drift> findDrift(List<Long> productIds) {
+        Map<Long, Long> redisQuantities = stockService.readStock(productIds);
+        Map<Long, Integer> databaseQuantities = inventoryRepository.findQuantities(productIds);
+        Map<Long, Drift> drift = new LinkedHashMap<>();
+        redisQuantities.forEach((productId, redisQuantity) -> {
+            Drift candidate = new Drift(redisQuantity, databaseQuantities.get(productId));
+            if (candidate.databaseQuantity == null || candidate.difference() != 0) {
+                drift.put(productId, candidate);
+            }
+        });
+        return drift;
+    }
+
+    private void repair(Long productId, Drift drift) {
+        try {
+            switch (policy) {
+                case REPAIR_REDIS -> {
+                    if (stockService.compareAndSetStock(productId, drift.redisQuantity, drift.databaseQuantity)) {
+                        repairedCounter.increment();
+                    }
+                }
+                case REPAIR_DB -> {
+                    // Relative, so reservations applied to the database meanwhile are kept
+                    inventoryRepository.incrementStock(Map.of(productId, Math.toIntExact(drift.difference())));
+                    repairedCounter.increment();
+                }
+                case REPORT -> {
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to repair stock drift for productId={}", productId, e);
+        }
+    }
+
+    private void finishPass() {
+        log.info("Stock reconciliation pass complete: driftedProducts={}, driftUnits={}", passDriftedProducts, passDriftUnits);
+        lastPassDriftedProducts.set(passDriftedProducts);
+        lastPassDriftUnits.set(passDriftUnits);
+        passDriftedProducts = 0;
+        passDriftUnits = 0;
+    }
+
+    private static class Drift {
+        private final long redisQuantity;
+        // Null when the product is not in the database
+        private final Integer databaseQuantity;
+
+        private Drift(long redisQuantity, Integer databaseQuantity) {
+            this.redisQuantity = redisQuantity;
+            this.databaseQuantity = databaseQuantity;
+        }
+
+        // Redis minus database
+        private long difference() {
+            return databaseQuantity == null ? redisQuantity : redisQuantity - databaseQuantity;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+// In-process copy of available stock for bulk reads. Fed by this instance's reservation results,
+// warm-up, lookups that fall through to Redis and, optionally, Redis keyspace notifications.
+// Each entry remembers when it was last refreshed so a lookup can report (and bound) its staleness.
+@Service
+public class StockReplica {
+    public static final int UNKNOWN = -1;
+    // Refresh times are stored as 10 ms ticks since startup, which fits an int for over 200 days
+    private static final long TICK_MS = 10;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap quantities;
+    private final LongIntHashMap refreshedAtTicks;
+    private final long startMillis = System.currentTimeMillis();
+    private long version;
+
+    public StockReplica(@Value("${inventory.stock.replica.expected-products:100000}") int expectedProducts) {
+        this.quantities = new LongIntHashMap(expectedProducts);
+        this.refreshedAtTicks = new LongIntHashMap(expectedProducts);
+    }
+
+    public void update(long productId, int quantity) {
+        int now = nowTicks();
+        long stamp = lock.writeLock();
+        try {
+            quantities.put(productId, quantity);
+            refreshedAtTicks.put(productId, now);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void updateAll(Map<Long, ? extends Number> productQuantities) {
+        if (productQuantities.isEmpty()) {
+            return;
+        }
+        int now = nowTicks();
+        long stamp = lock.writeLock();
+        try {
+            productQuantities.forEach((productId, quantity) -> {
+                quantities.put(productId, quantity.intValue());
+                refreshedAtTicks.put(productId, now);
+            });
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Fills quantities (UNKNOWN if absent) and ages in ms for the given ids under one consistent view.
+    // Tries an optimistic read first, so readers do not block each other or the writers
+    public long lookup(long[] productIds, int[] quantitiesOut, long[] agesMsOut) {
+        long stamp = lock.tryOptimisticRead();
+        long readVersion = read(productIds, quantitiesOut, agesMsOut);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                readVersion = read(productIds, quantitiesOut, agesMsOut);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return readVersion;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return quantities.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long read(long[] productIds, int[] quantitiesOut, long[] agesMsOut) {
+        int now = nowTicks();
+        for (int i = 0; i < productIds.length; i++) {
+            quantitiesOut[i] = quantities.get(productIds[i], UNKNOWN);
+            int refreshedAt = refreshedAtTicks.get(productIds[i], UNKNOWN);
+            agesMsOut[i] = refreshedAt == UNKNOWN ? Long.MAX_VALUE : (now - refreshedAt) * TICK_MS;
+        }
+        return version;
+    }
+
+    private int nowTicks() {
+        return (int) ((System.currentTimeMillis() - startMillis) / TICK_MS);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final long version;
+        private final long[] productIds;
+        private final int[] quantities;
+        private final long maxAgeMs;
+    }
+}
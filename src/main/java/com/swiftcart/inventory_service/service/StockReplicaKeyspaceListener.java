@@ -0,0 +1,82 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps the replica fresh for stock changed by other instances. Keyspace notifications only carry the
+// key, so changed products are collected and re-read from Redis in one pipeline per flush.
+// Needs notify-keyspace-events to include "Kh" on the Redis server.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.stock.replica.keyspace-notifications.enabled", havingValue = "true")
+public class StockReplicaKeyspaceListener implements MessageListener {
+    private static final String CHANNEL_PREFIX = "__keyspace@";
+
+    private final StockService stockService;
+    private final StockReplica stockReplica;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Set<Long> changedProductIds = ConcurrentHashMap.newKeySet();
+
+    public StockReplicaKeyspaceListener(StockService stockService, StockReplica stockReplica,
+                                        RedisConnectionFactory redisConnectionFactory) {
+        this.stockService = stockService;
+        this.stockReplica = stockReplica;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(redisConnectionFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(this, new PatternTopic(CHANNEL_PREFIX + "*__:" + StockService.STOCK_KEY_PREFIX + "*"));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel());
+        int keyStart = channel.indexOf("__:");
+        if (keyStart < 0) {
+            return;
+        }
+        try {
+            changedProductIds.add(StockService.productIdFromKey(channel.substring(keyStart + 3)));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring keyspace notification for unexpected key: {}", channel);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.replica.keyspace-notifications.flush-interval-ms:50}")
+    public void flush() {
+        if (changedProductIds.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(changedProductIds);
+        changedProductIds.removeAll(productIds);
+        try {
+            stockReplica.updateAll(stockService.readStock(productIds));
+        } catch (Exception e) {
+            // Lookups re-read these from Redis once they pass max-age anyway
+            log.warn("Failed to refresh {} replica entries after keyspace notifications: {}", productIds.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.swiftcart.inventory_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+// Published inside the transaction that recorded successful reservations: orderId -> productId -> quantity
+@Getter
+@AllArgsConstructor
+public class StockReservedEvent {
+    private final Map<Long, Map<Long, Integer>> reservedByOrder;
+}
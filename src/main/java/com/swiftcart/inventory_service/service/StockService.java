@@ -1,33 +1,120 @@
 package com.swiftcart.inventory_service.service;
 
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class StockService {
+    public static final String STOCK_KEY_PREFIX = "stock:productId:";
+    private static final LogSampler INSUFFICIENT_STOCK_LOG = new LogSampler(5);
+
     private final RedisTemplate<String, Object> redisTemplate;
-    private final DefaultRedisScript<List> reserveStockScript;
+    private final DefaultRedisScript<List> stockReservationScript;
+    private final DefaultRedisScript<List> stockBatchReservationScript;
+    private final DefaultRedisScript<List> ordersReservationScript;
+    private final DefaultRedisScript<List> stockAdjustmentScript;
+    private final DefaultRedisScript<List> coalescedReservationScript;
+    private final DefaultRedisScript<Long> stockCompareAndSetScript;
+    private final MeterRegistry meterRegistry;
+    private final StockReplica stockReplica;
+
+    // In write-behind mode Redis is authoritative and every change is journaled to this stream
+    @Value("${inventory.stock.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    @Value("${inventory.stock.write-behind.stream:stock:deltas}")
+    private String writeBehindStream;
+
+    // Opt-in group commit of concurrent single-product reservations
+    @Value("${inventory.stock.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${inventory.stock.coalescing.window-us:1000}")
+    private long coalescingWindowMicros;
+
+    @Value("${inventory.stock.coalescing.max-batch-size:64}")
+    private int coalescingMaxBatchSize;
+
+    @Value("${inventory.stock.coalescing.flush-threads:4}")
+    private int coalescingFlushThreads;
+
+    @Value("${inventory.stock.coalescing.timeout-ms:5000}")
+    private long coalescingTimeoutMs;
+
+    private ReservationCoalescer reservationCoalescer;
+
+    @PostConstruct
+    void startReservationCoalescer() {
+        if (coalescingEnabled) {
+            reservationCoalescer = new ReservationCoalescer(this::reserveCoalesced,
+                    (productId, quantity) -> releaseStock(Map.of(productId, quantity)), coalescingWindowMicros,
+                    coalescingMaxBatchSize, coalescingFlushThreads, coalescingTimeoutMs, meterRegistry);
+            log.info("Reservation coalescing enabled: window={}us, maxBatchSize={}", coalescingWindowMicros, coalescingMaxBatchSize);
+        }
+    }
+
+    @PreDestroy
+    void stopReservationCoalescer() {
+        if (reservationCoalescer != null) {
+            reservationCoalescer.shutdown();
+        }
+    }
+
+    public static String stockKey(Long productId) {
+        return STOCK_KEY_PREFIX + productId;
+    }
+
+    public static Long productIdFromKey(String stockKey) {
+        return Long.valueOf(stockKey.substring(STOCK_KEY_PREFIX.length()));
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    public String getWriteBehindStream() {
+        return writeBehindStream;
+    }
 
     public boolean reserveStock(Long productId, Integer quantity) {
         if (productId == null || quantity == null || quantity <= 0) {
             throw new IllegalArgumentException("Invalid productId or quantity");
         }
 
-        String stockKey = "stock:productId:" + productId;
+        if (reservationCoalescer != null) {
+            return reservationCoalescer.reserve(productId, quantity).getStatus() == BatchReservationResult.ItemStatus.AVAILABLE;
+        }
+
+        String stockKey = stockKey(productId);
 
         try {
+            // Script arguments are plain numbers, so bypass the template's JSON value serializer
             List<Long> result = redisTemplate.execute(
-                    reserveStockScript,
+                    stockReservationScript,
+                    RedisSerializer.string(),
+                    null,
                     Collections.singletonList(stockKey),
-                    quantity.toString()
+                    quantity.toString(),
+                    journalStream()
             );
 
             if (result == null || result.isEmpty()) {
@@ -36,6 +123,9 @@ public class StockService {
             }
 
             Long resultCode = result.get(0);
+            if (resultCode != -1 && result.size() > 1) {
+                stockReplica.update(productId, result.get(1).intValue());
+            }
             if (resultCode == 1) {
                 // Success
                 Long newQuantity = result.size() > 1 ? result.get(1) : null;
@@ -48,7 +138,11 @@ public class StockService {
             } else {
                 // Insufficient stock
                 Long currentStock = result.size() > 1 ? result.get(1) : 0L;
-                log.warn("Insufficient stock for productId: {}, requested: {}, available: {}", productId, quantity, currentStock);
+                long suppressed = INSUFFICIENT_STOCK_LOG.acquire();
+                if (suppressed >= 0) {
+                    log.warn("Insufficient stock for productId: {}, requested: {}, available: {}, similar suppressed={}",
+                            productId, quantity, currentStock, suppressed);
+                }
                 return false;
             }
         } catch (Exception e) {
@@ -57,18 +151,319 @@ public class StockService {
         }
     }
 
+    public BatchReservationResult reserveStockBatch(List<OrderCreatedEvent.OrderItem> orderItems) {
+        if (orderItems == null || orderItems.isEmpty()) {
+            throw new IllegalArgumentException("Order items must not be empty");
+        }
+        for (OrderCreatedEvent.OrderItem orderItem : orderItems) {
+            if (orderItem.getProductId() == null || orderItem.getQuantity() == null || orderItem.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid productId or quantity");
+            }
+        }
+
+        if (reservationCoalescer != null && orderItems.size() == 1) {
+            // Single-product orders are the ones that pile up on one key during a launch
+            OrderCreatedEvent.OrderItem orderItem = orderItems.get(0);
+            BatchReservationResult.ItemResult itemResult = reservationCoalescer.reserve(orderItem.getProductId(), orderItem.getQuantity());
+            return new BatchReservationResult(itemResult.getStatus() == BatchReservationResult.ItemStatus.AVAILABLE, List.of(itemResult));
+        }
+
+        List<String> stockKeys = new ArrayList<>(orderItems.size());
+        Object[] quantities = new Object[orderItems.size() + 1];
+        for (int i = 0; i < orderItems.size(); i++) {
+            OrderCreatedEvent.OrderItem orderItem = orderItems.get(i);
+            stockKeys.add(stockKey(orderItem.getProductId()));
+            quantities[i] = orderItem.getQuantity().toString();
+        }
+        quantities[orderItems.size()] = journalStream();
+
+        List<Long> result;
+        try {
+            result = redisTemplate.execute(
+                    stockBatchReservationScript,
+                    RedisSerializer.string(),
+                    null,
+                    stockKeys,
+                    quantities
+            );
+        } catch (Exception e) {
+            log.error("Failed to execute Redis batch reservation script for keys: {}", stockKeys, e);
+            throw new RuntimeException("Redis stock reservation failed", e);
+        }
+
+        if (result == null || result.size() != 1 + 2 * orderItems.size()) {
+            log.error("Redis batch reservation script returned unexpected result for keys: {}", stockKeys);
+            throw new RuntimeException("Redis stock reservation failed: unexpected script result");
+        }
+
+        BatchReservationResult reservation = toBatchReservationResult(orderItems, result, 0);
+        if (reservation.isReserved()) {
+            log.debug("Stock reserved successfully for {} items in one script call", orderItems.size());
+        } else {
+            long suppressed = INSUFFICIENT_STOCK_LOG.acquire();
+            if (suppressed >= 0) {
+                BatchReservationResult.ItemResult failure = reservation.getFirstFailure();
+                log.warn("Batch reservation rejected: productId={}, status={}, requested: {}, available: {}, similar suppressed={}",
+                        failure.getProductId(), failure.getStatus(), failure.getRequestedQuantity(), failure.getQuantity(), suppressed);
+            }
+        }
+        return reservation;
+    }
+
+    private List<BatchReservationResult.ItemResult> reserveCoalesced(Long productId, List<Integer> quantities) {
+        Object[] args = new Object[quantities.size() + 1];
+        for (int i = 0; i < quantities.size(); i++) {
+            args[i] = quantities.get(i).toString();
+        }
+        args[quantities.size()] = journalStream();
+
+        List<Long> result = redisTemplate.execute(
+                coalescedReservationScript,
+                RedisSerializer.string(),
+                null,
+                Collections.singletonList(stockKey(productId)),
+                args
+        );
+        if (result == null || result.size() != 2 * quantities.size()) {
+            throw new IllegalStateException("Unexpected coalesced reservation result for productId " + productId);
+        }
+
+        List<BatchReservationResult.ItemResult> itemResults = new ArrayList<>(quantities.size());
+        for (int i = 0; i < quantities.size(); i++) {
+            long code = result.get(2 * i);
+            BatchReservationResult.ItemStatus status = code == 1
+                    ? BatchReservationResult.ItemStatus.AVAILABLE
+                    : code == -1 ? BatchReservationResult.ItemStatus.NOT_FOUND : BatchReservationResult.ItemStatus.INSUFFICIENT;
+            itemResults.add(new BatchReservationResult.ItemResult(productId, quantities.get(i), status, result.get(2 * i + 1)));
+        }
+        if (result.get(0) != -1) {
+            stockReplica.update(productId, result.get(result.size() - 1).intValue());
+        }
+        return itemResults;
+    }
+
+    public List<BatchReservationResult> reserveStockForOrders(List<List<OrderCreatedEvent.OrderItem>> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return List.of();
+        }
+
+        // Every distinct product key is passed once; items refer to it by index
+        Map<String, Integer> keyIndexes = new LinkedHashMap<>();
+        List<Object> args = new ArrayList<>();
+        args.add(String.valueOf(orders.size()));
+        int expectedSize = 0;
+        for (List<OrderCreatedEvent.OrderItem> orderItems : orders) {
+            args.add(String.valueOf(orderItems.size()));
+            for (OrderCreatedEvent.OrderItem orderItem : orderItems) {
+                if (orderItem.getProductId() == null || orderItem.getQuantity() == null || orderItem.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Invalid productId or quantity");
+                }
+                int keyIndex = keyIndexes.computeIfAbsent(stockKey(orderItem.getProductId()), key -> keyIndexes.size() + 1);
+                args.add(String.valueOf(keyIndex));
+                args.add(orderItem.getQuantity().toString());
+            }
+            expectedSize += 1 + 2 * orderItems.size();
+        }
+        args.add(journalStream());
+
+        List<String> stockKeys = new ArrayList<>(keyIndexes.keySet());
+        List<Long> result;
+        try {
+            result = redisTemplate.execute(
+                    ordersReservationScript,
+                    RedisSerializer.string(),
+                    null,
+                    stockKeys,
+                    args.toArray()
+            );
+        } catch (Exception e) {
+            log.error("Failed to execute Redis reservation script for {} orders", orders.size(), e);
+            throw new RuntimeException("Redis stock reservation failed", e);
+        }
+
+        if (result == null || result.size() != expectedSize) {
+            log.error("Redis reservation script returned unexpected result for {} orders", orders.size());
+            throw new RuntimeException("Redis stock reservation failed: unexpected script result");
+        }
+
+        List<BatchReservationResult> reservations = new ArrayList<>(orders.size());
+        int offset = 0;
+        for (List<OrderCreatedEvent.OrderItem> orderItems : orders) {
+            reservations.add(toBatchReservationResult(orderItems, result, offset));
+            offset += 1 + 2 * orderItems.size();
+        }
+        log.debug("Reserved stock for {} orders over {} products in one script call", orders.size(), stockKeys.size());
+        return reservations;
+    }
+
+    public void releaseStock(Map<Long, Integer> quantities) {
+        adjustStock(quantities, true);
+    }
+
+    // Adds signed deltas to the products that are present in Redis; missing keys are left for lazy seeding
+    public void adjustStock(Map<Long, Integer> deltas, boolean journaled) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<String> stockKeys = new ArrayList<>(deltas.size());
+        Object[] args = new Object[deltas.size() + 1];
+        int i = 0;
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            stockKeys.add(stockKey(delta.getKey()));
+            args[i++] = delta.getValue().toString();
+        }
+        args[i] = journaled ? journalStream() : "";
+
+        try {
+            List<Long> quantities = redisTemplate.execute(stockAdjustmentScript, RedisSerializer.string(), null, stockKeys, args);
+            if (quantities != null && quantities.size() == stockKeys.size()) {
+                int index = 0;
+                for (Long productId : deltas.keySet()) {
+                    long quantity = quantities.get(index++);
+                    if (quantity >= 0) {
+                        stockReplica.update(productId, (int) quantity);
+                    }
+                }
+            }
+            log.debug("Adjusted stock in Redis for productIds: {}", deltas.keySet());
+        } catch (Exception e) {
+            log.error("Failed to adjust stock in Redis for productIds: {}", deltas.keySet(), e);
+            throw new RuntimeException("Failed to adjust Redis stock", e);
+        }
+    }
+
+    private String journalStream() {
+        return writeBehindEnabled ? writeBehindStream : "";
+    }
+
+    private BatchReservationResult toBatchReservationResult(List<OrderCreatedEvent.OrderItem> orderItems,
+                                                            List<Long> result, int offset) {
+        boolean reserved = result.get(offset) == 1;
+        List<BatchReservationResult.ItemResult> items = new ArrayList<>(orderItems.size());
+        for (int i = 0; i < orderItems.size(); i++) {
+            OrderCreatedEvent.OrderItem orderItem = orderItems.get(i);
+            long code = result.get(offset + 1 + 2 * i);
+            BatchReservationResult.ItemStatus status = code == 1
+                    ? BatchReservationResult.ItemStatus.AVAILABLE
+                    : code == -1 ? BatchReservationResult.ItemStatus.NOT_FOUND : BatchReservationResult.ItemStatus.INSUFFICIENT;
+            items.add(new BatchReservationResult.ItemResult(
+                    orderItem.getProductId(), orderItem.getQuantity(), status, result.get(offset + 2 + 2 * i)));
+            if (status != BatchReservationResult.ItemStatus.NOT_FOUND) {
+                // Results come in reservation order, so the last one seen for a product is its current stock
+                stockReplica.update(orderItem.getProductId(), result.get(offset + 2 + 2 * i).intValue());
+            }
+        }
+        return new BatchReservationResult(reserved, items);
+    }
+
     public void updateStock(Long productId, Integer quantity) {
         if (productId == null || quantity == null || quantity < 0) {
             throw new IllegalArgumentException("Invalid productId or quantity");
         }
 
-        String stockKey = "stock:productId:" + productId;
+        String stockKey = stockKey(productId);
         try {
             redisTemplate.opsForHash().put(stockKey, "quantity", String.valueOf(quantity));
+            stockReplica.update(productId, quantity);
             log.debug("Updated stock in Redis for productId: {} to quantity: {}", productId, quantity);
         } catch (Exception e) {
             log.error("Failed to update stock in Redis for productId: {}", productId, e);
             throw new RuntimeException("Failed to update Redis stock", e);
         }
     }
-}
\ No newline at end of file
+
+    // Current Redis quantity per product; products missing from Redis are left out
+    public Map<Long, Long> readStock(Collection<Long> productIds) {
+        List<Long> keyOwners = new ArrayList<>(productIds);
+        List<String> keys = new ArrayList<>(productIds.size());
+        for (Long productId : keyOwners) {
+            keys.add(stockKey(productId));
+        }
+
+        byte[] field = RedisSerializer.string().serialize("quantity");
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hashCommands().hGet(RedisSerializer.string().serialize(key), field);
+            }
+            return null;
+        });
+
+        Map<Long, Long> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                quantities.put(keyOwners.get(i), Long.valueOf(value.toString()));
+            }
+        }
+        return quantities;
+    }
+
+    // Bulk load for warm-up: one pipeline of HSETNX, or HSET when overwriting. Returns the number of products written
+    public int loadStock(Map<Long, Integer> quantities, boolean overwrite) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            byte[] field = RedisSerializer.string().serialize("quantity");
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                quantities.forEach((productId, quantity) -> {
+                    byte[] key = RedisSerializer.string().serialize(stockKey(productId));
+                    byte[] value = RedisSerializer.string().serialize(String.valueOf(quantity));
+                    if (overwrite) {
+                        connection.hashCommands().hSet(key, field, value);
+                    } else {
+                        connection.hashCommands().hSetNX(key, field, value);
+                    }
+                });
+                return null;
+            });
+            // HSET reports whether the field is new, so count every overwrite as written
+            Map<Long, Integer> stored = new LinkedHashMap<>();
+            int index = 0;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                if (overwrite || Boolean.TRUE.equals(results.get(index))) {
+                    stored.put(entry.getKey(), entry.getValue());
+                }
+                index++;
+            }
+            stockReplica.updateAll(stored);
+            return stored.size();
+        } catch (Exception e) {
+            log.error("Failed to load stock into Redis for {} products", quantities.size(), e);
+            throw new RuntimeException("Failed to load Redis stock", e);
+        }
+    }
+
+    // Overwrites a product's quantity only if Redis still holds the expected one
+    public boolean compareAndSetStock(Long productId, long expected, int quantity) {
+        Long updated = redisTemplate.execute(
+                stockCompareAndSetScript,
+                RedisSerializer.string(),
+                null,
+                Collections.singletonList(stockKey(productId)),
+                String.valueOf(expected),
+                String.valueOf(quantity)
+        );
+        if (updated != null && updated == 1) {
+            stockReplica.update(productId, quantity);
+            return true;
+        }
+        return false;
+    }
+
+    // Stores the quantity only if the product is not in Redis yet
+    public void seedStock(Long productId, Integer quantity) {
+        if (productId == null || quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Invalid productId or quantity");
+        }
+
+        try {
+            redisTemplate.opsForHash().putIfAbsent(stockKey(productId), "quantity", String.valueOf(quantity));
+        } catch (Exception e) {
+            log.error("Failed to seed stock in Redis for productId: {}", productId, e);
+            throw new RuntimeException("Failed to seed Redis stock", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.swiftcart.inventory_service.service;
+
+// The order cannot be decided right now without risking an oversell (Redis failing while it is still
+// the source of truth). The order's idempotency claim is released and the consumer redelivers it later;
+// it is neither rejected nor dead-lettered
+public class StockUnavailableException extends RuntimeException {
+    public StockUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,157 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Loads stock for every product from PostgreSQL into Redis in pipelined batches, before the
+// Kafka listeners start and on demand (e.g. after a Redis flush or failover)
+@Service
+@Slf4j
+public class StockWarmupService implements SmartLifecycle {
+    private final InventoryRepository inventoryRepository;
+    private final StockService stockService;
+    private final ProductCatalogCache productCatalogCache;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean enabledOnStartup;
+    private final int batchSize;
+    private final int fetchSize;
+    private final AtomicBoolean warmupRunning = new AtomicBoolean();
+
+    private volatile boolean running;
+
+    public StockWarmupService(
+            InventoryRepository inventoryRepository,
+            StockService stockService,
+            ProductCatalogCache productCatalogCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.stock.warmup.enabled:true}") boolean enabledOnStartup,
+            @Value("${inventory.stock.warmup.batch-size:5000}") int batchSize,
+            @Value("${inventory.stock.warmup.fetch-size:5000}") int fetchSize
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.stockService = stockService;
+        this.productCatalogCache = productCatalogCache;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.enabledOnStartup = enabledOnStartup;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    // Existing keys are kept unless overwrite is set; in write-behind mode Redis is ahead of the
+    // database, so it is never overwritten
+    public WarmupResult warmUp(boolean overwrite) {
+        if (!warmupRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("Stock warm-up is already running");
+        }
+        try {
+            boolean overwriteRedis = overwrite && !stockService.isWriteBehindEnabled();
+            if (overwrite && !overwriteRedis) {
+                log.warn("Write-behind is enabled, warm-up only fills missing stock keys");
+            }
+
+            long start = System.nanoTime();
+            int[] counts = new int[2];
+            Map<Long, Integer> batch = new LinkedHashMap<>();
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                inventoryRepository.streamQuantities(fetchSize, (productId, quantity) -> {
+                    batch.put(productId, quantity);
+                    if (batch.size() >= batchSize) {
+                        counts[0] += batch.size();
+                        counts[1] += loadBatch(batch, overwriteRedis);
+                        batch.clear();
+                    }
+                });
+            });
+            counts[0] += batch.size();
+            counts[1] += loadBatch(batch, overwriteRedis);
+
+            WarmupResult result = new WarmupResult(counts[0], counts[1], (System.nanoTime() - start) / 1_000_000);
+            log.info("Stock warm-up finished: products={}, written={}, overwrite={}, took {} ms",
+                    result.getProducts(), result.getWritten(), overwriteRedis, result.getDurationMs());
+            return result;
+        } finally {
+            warmupRunning.set(false);
+        }
+    }
+
+    // Every product streamed here exists, so the product cache is primed along the way
+    private int loadBatch(Map<Long, Integer> batch, boolean overwrite) {
+        productCatalogCache.markExisting(batch.keySet());
+        return stockService.loadStock(batch, overwrite);
+    }
+
+    // Stock changed in the database only while Redis was skipped is added to Redis, a chunk per script
+    // call. Relative, because other instances may already be reserving in Redis again: overwriting with
+    // database quantities would wipe out their reservations. Unjournaled, the database already has these
+    @EventListener
+    public void onRedisRecovered(RedisRecoveredEvent event) {
+        Map<Long, Integer> deltas = event.getStockDeltas();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int products = deltas.size();
+        List<Long> productIds = new ArrayList<>(deltas.keySet());
+        for (int from = 0; from < productIds.size(); from += batchSize) {
+            Map<Long, Integer> chunk = new LinkedHashMap<>();
+            productIds.subList(from, Math.min(from + batchSize, productIds.size()))
+                    .forEach(productId -> chunk.put(productId, deltas.get(productId)));
+            stockService.adjustStock(chunk, false);
+            deltas.keySet().removeAll(chunk.keySet());
+        }
+        log.info("Resynced Redis stock for {} products after recovery", products);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabledOnStartup) {
+            return;
+        }
+        try {
+            warmUp(false);
+        } catch (Exception e) {
+            // Not fatal: products missing from Redis are still seeded on their first order
+            log.error("Stock warm-up on startup failed", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Start just before the Kafka listener containers so no order sees a cold Redis
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class WarmupResult {
+        private final int products;
+        private final int written;
+        private final long durationMs;
+    }
+}
@@ -0,0 +1,137 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.entity.StockJournalOffset;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.repository.StockJournalOffsetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Applies the stock deltas journaled by the reservation scripts to the inventory table in coalesced batches.
+// The applied position is committed together with the UPDATEs, so a crash never loses or repeats a delta.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.stock.write-behind.enabled", havingValue = "true")
+public class StockWriteBehindService {
+    private static final String INITIAL_ENTRY_ID = "0-0";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final InventoryRepository inventoryRepository;
+    private final StockJournalOffsetRepository stockJournalOffsetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String stream;
+    private final int batchSize;
+
+    public StockWriteBehindService(
+            RedisTemplate<String, Object> redisTemplate,
+            InventoryRepository inventoryRepository,
+            StockJournalOffsetRepository stockJournalOffsetRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${inventory.stock.write-behind.stream:stock:deltas}") String stream,
+            @Value("${inventory.stock.write-behind.batch-size:1000}") int batchSize
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.inventoryRepository = inventoryRepository;
+        this.stockJournalOffsetRepository = stockJournalOffsetRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.stream = stream;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.write-behind.flush-interval-ms:500}")
+    public void flush() {
+        try {
+            flushAll();
+        } catch (Exception e) {
+            log.error("Failed to flush write-behind stock journal: stream={}", stream, e);
+        }
+    }
+
+    // Applies everything journaled so far; failures propagate to the caller
+    public void flushAll() {
+        int applied;
+        do {
+            applied = transactionTemplate.execute(status -> flushBatch());
+        } while (applied == batchSize);
+    }
+
+    private int flushBatch() {
+        // The row lock makes other instances wait instead of applying the same entries
+        StockJournalOffset offset = stockJournalOffsetRepository.lockByStream(stream).orElseGet(() -> {
+            StockJournalOffset initial = new StockJournalOffset();
+            initial.setStream(stream);
+            initial.setLastEntryId(INITIAL_ENTRY_ID);
+            return stockJournalOffsetRepository.save(initial);
+        });
+
+        // The range start is inclusive, so the already applied entry may come back first
+        List<MapRecord<String, Object, Object>> entries = redisTemplate.opsForStream().range(
+                stream,
+                Range.rightUnbounded(Range.Bound.inclusive(offset.getLastEntryId())),
+                Limit.limit().count(batchSize + 1));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+
+        // Coalesce all deltas of the batch into one signed delta per product
+        Map<Long, Integer> deltas = new HashMap<>();
+        String lastEntryId = offset.getLastEntryId();
+        int applied = 0;
+        for (MapRecord<String, Object, Object> entry : entries) {
+            String entryId = entry.getId().getValue();
+            if (entryId.equals(offset.getLastEntryId()) || applied == batchSize) {
+                continue;
+            }
+            Long productId = StockService.productIdFromKey((String) entry.getValue().get("key"));
+            deltas.merge(productId, Integer.valueOf((String) entry.getValue().get("delta")), Integer::sum);
+            lastEntryId = entryId;
+            applied++;
+        }
+        if (applied == 0) {
+            return 0;
+        }
+
+        deltas.values().removeIf(delta -> delta == 0);
+        inventoryRepository.incrementStock(deltas);
+        offset.setLastEntryId(lastEntryId);
+
+        // Entries before the committed position are no longer needed
+        String trimTo = lastEntryId;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                trimJournal(trimTo);
+            }
+        });
+
+        log.debug("Applied {} journaled stock deltas to {} products, lastEntryId={}", applied, deltas.size(), lastEntryId);
+        return applied;
+    }
+
+    private void trimJournal(String minEntryId) {
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute(
+                    "XTRIM",
+                    RedisSerializer.string().serialize(stream),
+                    RedisSerializer.string().serialize("MINID"),
+                    RedisSerializer.string().serialize(minEntryId)));
+        } catch (Exception e) {
+            log.warn("Failed to trim write-behind stock journal: stream={}, minEntryId={}", stream, minEntryId, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+-- Keeps the outbox claim query cheap as published rows pile up
+CREATE INDEX IF NOT EXISTS idx_outbox_event_unpublished ON outbox_event (created_at) WHERE published = false;
+
+-- Outbox payloads are stored as raw UTF-8 JSON bytes; convert tables created while the column was TEXT
+DO 'BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = ''outbox_event'' AND column_name = ''payload'' AND data_type = ''text'') THEN
+        ALTER TABLE outbox_event ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, ''UTF8'');
+    END IF;
+END';
@@ -0,0 +1,19 @@
+-- KEYS[1..n]: Stock hash keys (e.g., stock:productId:123)
+-- ARGV[1..n]: Signed quantity to add to the matching key
+-- ARGV[n+1]: Optional write-behind journal stream ('' when disabled)
+-- Keys missing in Redis are skipped; they are seeded from the database on first use.
+-- Returns the new quantity per key, or -1 when the key was skipped
+local journal = ARGV[#KEYS + 1]
+local result = {}
+for i = 1, #KEYS do
+    local delta = tonumber(ARGV[i])
+    if redis.call('EXISTS', KEYS[i]) == 1 then
+        table.insert(result, redis.call('HINCRBY', KEYS[i], 'quantity', delta))
+        if journal and journal ~= '' then
+            redis.call('XADD', journal, '*', 'key', KEYS[i], 'delta', delta)
+        end
+    else
+        table.insert(result, -1)
+    end
+end
+return result
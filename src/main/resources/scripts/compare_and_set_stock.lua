@@ -0,0 +1,10 @@
+-- KEYS[1]: Stock hash key (e.g., stock:productId:123)
+-- ARGV[1]: Quantity the caller last observed
+-- ARGV[2]: Quantity to store
+-- Returns 1 if the key still held the observed quantity and was updated, 0 otherwise
+local current = redis.call('HGET', KEYS[1], 'quantity')
+if current and tonumber(current) == tonumber(ARGV[1]) then
+    redis.call('HSET', KEYS[1], 'quantity', ARGV[2])
+    return 1
+end
+return 0
@@ -0,0 +1,34 @@
+-- KEYS[1]: Hold expiry index (sorted set of orderIds scored by deadline)
+-- ARGV[1]: Hold key prefix (e.g., hold:order:)
+-- ARGV[2..]: Per order: orderId, deadline in epoch milliseconds, item count, then stock key and quantity
+--            of each item
+-- Each hold is a hash of stock key -> reserved quantity, released to that same key. Quantities are set,
+-- not added, so a retried call creates the same hold. settle_holds.lua leaves a marker next to every hold
+-- it settles: a hold already settled ('done') or confirmed before it was created is not created again,
+-- and one released before it was created is created already expired, for the next sweep to give back.
+-- Returns the number of holds created
+local index = KEYS[1]
+local prefix = ARGV[1]
+
+local created = 0
+local i = 2
+while i <= #ARGV do
+    local order_id = ARGV[i]
+    local deadline = ARGV[i + 1]
+    local count = tonumber(ARGV[i + 2])
+    local hold_key = prefix .. order_id
+    local settled = redis.call('GET', hold_key .. ':settled')
+    if settled ~= 'done' and settled ~= 'confirm' then
+        for j = 0, count - 1 do
+            redis.call('HSET', hold_key, ARGV[i + 3 + 2 * j], ARGV[i + 4 + 2 * j])
+        end
+        if settled == 'release' then
+            redis.call('ZADD', index, 0, order_id)
+        else
+            redis.call('ZADD', index, deadline, order_id)
+        end
+        created = created + 1
+    end
+    i = i + 3 + 2 * count
+end
+return created
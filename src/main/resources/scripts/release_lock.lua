@@ -0,0 +1,7 @@
+-- KEYS[1]: Lock key
+-- ARGV[1]: Token the caller set when it took the lock
+-- Returns 1 if the caller still held the lock and released it, 0 if it had expired or been taken by another
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -1,12 +1,14 @@
 -- KEYS[1]: Stock hash key (e.g., stock:productId:123)
 -- ARGV[1]: Requested quantity
+-- ARGV[2]: Optional write-behind journal stream ('' when disabled)
 local stock_key = KEYS[1]
 local requested_qty = tonumber(ARGV[1])
+local journal = ARGV[2]
 
 -- Get current stock
 local current_stock = redis.call('HGET', stock_key, 'quantity')
 if not current_stock then
-return {0, 0}
+return {-1, 0}
 end
 current_stock = tonumber(current_stock)
 
@@ -15,6 +17,9 @@ if current_stock >= requested_qty then
 -- Decrement stock
 local new_stock = current_stock - requested_qty
 redis.call('HSET', stock_key, 'quantity', new_stock)
+if journal and journal ~= '' then
+redis.call('XADD', journal, '*', 'key', stock_key, 'delta', -requested_qty)
+end
 return {1, new_stock}
 else
 return {0, current_stock}
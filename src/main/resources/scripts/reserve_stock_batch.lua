@@ -0,0 +1,56 @@
+-- KEYS[1..n]: Stock hash keys (e.g., stock:productId:123), one per order item
+-- ARGV[1..n]: Requested quantity for the matching key
+-- ARGV[n+1]: Optional write-behind journal stream ('' when disabled)
+-- Returns {reserved, item1_code, item1_qty, ..., itemN_code, itemN_qty}
+--   reserved: 1 if every item was decremented, 0 if nothing was decremented
+--   item code: 1 enough stock, 0 insufficient stock, -1 product not found in Redis
+--   item qty: remaining stock if reserved, otherwise current stock
+
+-- Sum requested quantities per key (an order may list the same product twice)
+local needed = {}
+for i = 1, #KEYS do
+    needed[KEYS[i]] = (needed[KEYS[i]] or 0) + tonumber(ARGV[i])
+end
+
+-- Check every product before touching any stock
+local current = {}
+local all_available = true
+for key, qty in pairs(needed) do
+    local stock = redis.call('HGET', key, 'quantity')
+    if not stock then
+        current[key] = false
+        all_available = false
+    else
+        current[key] = tonumber(stock)
+        if current[key] < qty then
+            all_available = false
+        end
+    end
+end
+
+-- Decrement all or nothing, journaling the deltas in the same atomic step
+local journal = ARGV[#KEYS + 1]
+if all_available then
+    for key, qty in pairs(needed) do
+        redis.call('HSET', key, 'quantity', current[key] - qty)
+        if journal and journal ~= '' then
+            redis.call('XADD', journal, '*', 'key', key, 'delta', -qty)
+        end
+    end
+end
+
+local result = {all_available and 1 or 0}
+for i = 1, #KEYS do
+    local key = KEYS[i]
+    if current[key] == false then
+        table.insert(result, -1)
+        table.insert(result, 0)
+    elseif all_available then
+        table.insert(result, 1)
+        table.insert(result, current[key] - needed[key])
+    else
+        table.insert(result, current[key] >= needed[key] and 1 or 0)
+        table.insert(result, current[key])
+    end
+end
+return result
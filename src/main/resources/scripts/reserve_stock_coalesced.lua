@@ -0,0 +1,40 @@
+-- KEYS[1]: Stock hash key (e.g., stock:productId:123)
+-- ARGV[1..n]: Requested quantities of the coalesced requests, in arrival order
+-- ARGV[n+1]: Optional write-behind journal stream ('' when disabled)
+-- Each request is granted against the stock left by the ones before it, exactly as if
+-- they had been run one by one, but with a single read, write and journal entry.
+-- Returns {req1_code, req1_qty, ..., reqN_code, reqN_qty} with the codes of reserve_stock.lua
+local stock_key = KEYS[1]
+local count = #ARGV - 1
+local journal = ARGV[count + 1]
+
+local result = {}
+local stock = redis.call('HGET', stock_key, 'quantity')
+if not stock then
+    for _ = 1, count do
+        table.insert(result, -1)
+        table.insert(result, 0)
+    end
+    return result
+end
+
+local original = tonumber(stock)
+local current = original
+for i = 1, count do
+    local requested = tonumber(ARGV[i])
+    if current >= requested then
+        current = current - requested
+        table.insert(result, 1)
+    else
+        table.insert(result, 0)
+    end
+    table.insert(result, current)
+end
+
+if current ~= original then
+    redis.call('HSET', stock_key, 'quantity', current)
+    if journal and journal ~= '' then
+        redis.call('XADD', journal, '*', 'key', stock_key, 'delta', current - original)
+    end
+end
+return result
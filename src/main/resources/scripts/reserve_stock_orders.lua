@@ -0,0 +1,77 @@
+-- KEYS[1..k]: Distinct stock hash keys used by the batch (e.g., stock:productId:123)
+-- ARGV[1]: Number of orders
+-- ARGV[2..]: Per order: item count, then a (key index, requested quantity) pair per item
+-- ARGV[last]: Optional write-behind journal stream ('' when disabled)
+-- Orders are reserved in the given order, each one all-or-nothing.
+-- Returns per order {reserved, item1_code, item1_qty, ...}, flattened, with the
+-- same codes as reserve_stock_batch.lua
+
+-- Read every key once
+local current = {}
+local original = {}
+for i = 1, #KEYS do
+    local stock = redis.call('HGET', KEYS[i], 'quantity')
+    if stock then
+        current[i] = tonumber(stock)
+    else
+        current[i] = false
+    end
+    original[i] = current[i]
+end
+
+local result = {}
+local pos = 2
+for _ = 1, tonumber(ARGV[1]) do
+    local count = tonumber(ARGV[pos])
+    pos = pos + 1
+
+    -- Sum requested quantities per key for this order
+    local indexes = {}
+    local needed = {}
+    for i = 1, count do
+        local index = tonumber(ARGV[pos])
+        indexes[i] = index
+        needed[index] = (needed[index] or 0) + tonumber(ARGV[pos + 1])
+        pos = pos + 2
+    end
+
+    local all_available = true
+    for index, qty in pairs(needed) do
+        if current[index] == false or current[index] < qty then
+            all_available = false
+        end
+    end
+
+    if all_available then
+        for index, qty in pairs(needed) do
+            current[index] = current[index] - qty
+        end
+    end
+
+    table.insert(result, all_available and 1 or 0)
+    for i = 1, count do
+        local index = indexes[i]
+        if current[index] == false then
+            table.insert(result, -1)
+            table.insert(result, 0)
+        elseif all_available then
+            table.insert(result, 1)
+            table.insert(result, current[index])
+        else
+            table.insert(result, current[index] >= needed[index] and 1 or 0)
+            table.insert(result, current[index])
+        end
+    end
+end
+
+-- Write back only the keys that changed, journaling one coalesced delta per key
+local journal = ARGV[pos]
+for i = 1, #KEYS do
+    if current[i] ~= original[i] then
+        redis.call('HSET', KEYS[i], 'quantity', current[i])
+        if journal and journal ~= '' then
+            redis.call('XADD', journal, '*', 'key', KEYS[i], 'delta', current[i] - original[i])
+        end
+    end
+end
+return result
@@ -0,0 +1,106 @@
+-- KEYS[1]: Hold expiry index (sorted set of orderIds scored by deadline)
+-- KEYS[2]: Unrecorded release index (sorted set of orderIds scored by when they may be retried)
+-- ARGV[1]: 'confirm' drops the holds; 'release' and 'expire' also give their stock back;
+--          'retry' returns releases not recorded in the database yet; 'recorded' forgets them
+-- ARGV[2]: Hold key prefix (e.g., hold:order:)
+-- ARGV[3]: Optional write-behind journal stream ('' when disabled)
+-- ARGV[4]: Lifetime of the settled markers in milliseconds
+-- ARGV[5]: Release reason ('' for 'confirm', 'retry' and 'recorded')
+-- ARGV[6]: Current epoch milliseconds
+-- ARGV[7..]: 'expire': the max number of holds to settle; 'retry': the latest release time to retry
+--            and the max number of releases to return; otherwise the orderIds
+-- A hold is claimed and released in the same call, so it is settled exactly once however many
+-- sweepers and consumers race for it. Stock keys missing from Redis are left to the caller.
+-- Every settled hold leaves a marker (see create_holds.lua), so a late retry does not recreate it; an
+-- order confirmed or released before its hold exists leaves the mode, so the hold is not left to expire.
+-- A release is also kept as a list hold:order:{orderId}:unrecorded (reason, then stock key, quantity
+-- and applied per item) until the caller has recorded it in the database, so a failed database write
+-- is retried rather than lost. A retried release is pushed back to ARGV[6], for one sweeper at a time.
+-- Returns {orderId, reason, itemCount, stockKey, quantity, applied, ...} for every hold settled or retried
+local index = KEYS[1]
+local unrecorded = KEYS[2]
+local mode = ARGV[1]
+local prefix = ARGV[2]
+local journal = ARGV[3]
+local marker_ttl = ARGV[4]
+local reason = ARGV[5]
+local now = ARGV[6]
+
+local result = {}
+
+if mode == 'recorded' then
+    for i = 7, #ARGV do
+        redis.call('ZREM', unrecorded, ARGV[i])
+        redis.call('DEL', prefix .. ARGV[i] .. ':unrecorded')
+    end
+    return result
+end
+
+if mode == 'retry' then
+    local order_ids = redis.call('ZRANGEBYSCORE', unrecorded, '-inf', ARGV[7], 'LIMIT', 0, tonumber(ARGV[8]))
+    for _, order_id in ipairs(order_ids) do
+        local entry = redis.call('LRANGE', prefix .. order_id .. ':unrecorded', 0, -1)
+        if #entry > 0 then
+            redis.call('ZADD', unrecorded, now, order_id)
+            table.insert(result, order_id)
+            table.insert(result, entry[1])
+            table.insert(result, (#entry - 1) / 3)
+            for i = 2, #entry do
+                table.insert(result, entry[i])
+            end
+        else
+            redis.call('ZREM', unrecorded, order_id)
+        end
+    end
+    return result
+end
+
+local order_ids
+if mode == 'expire' then
+    order_ids = redis.call('ZRANGEBYSCORE', index, '-inf', now, 'LIMIT', 0, tonumber(ARGV[7]))
+else
+    order_ids = {}
+    for i = 7, #ARGV do
+        table.insert(order_ids, ARGV[i])
+    end
+end
+
+for _, order_id in ipairs(order_ids) do
+    local hold_key = prefix .. order_id
+    local items = redis.call('HGETALL', hold_key)
+    redis.call('DEL', hold_key)
+    redis.call('ZREM', index, order_id)
+    if #items > 0 then
+        redis.call('SET', hold_key .. ':settled', 'done', 'PX', marker_ttl)
+        table.insert(result, order_id)
+        table.insert(result, reason)
+        table.insert(result, #items / 2)
+        local entry = {reason}
+        for i = 1, #items, 2 do
+            local stock_key = items[i]
+            local quantity = tonumber(items[i + 1])
+            local applied = 0
+            if mode ~= 'confirm' and redis.call('EXISTS', stock_key) == 1 then
+                redis.call('HINCRBY', stock_key, 'quantity', quantity)
+                if journal and journal ~= '' then
+                    redis.call('XADD', journal, '*', 'key', stock_key, 'delta', quantity)
+                end
+                applied = 1
+            end
+            table.insert(result, stock_key)
+            table.insert(result, quantity)
+            table.insert(result, applied)
+            table.insert(entry, stock_key)
+            table.insert(entry, quantity)
+            table.insert(entry, applied)
+        end
+        if mode ~= 'confirm' then
+            redis.call('RPUSH', hold_key .. ':unrecorded', unpack(entry))
+            redis.call('ZADD', unrecorded, now, order_id)
+        end
+    elseif mode ~= 'expire' then
+        -- NX: an order already settled stays 'done'
+        redis.call('SET', hold_key .. ':settled', mode, 'PX', marker_ttl, 'NX')
+    end
+end
+return result
@@ -0,0 +1,348 @@
+package com.swiftcart.inventory_service.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.swiftcart.inventory_service.codec.InventoryEventCodec;
+import com.swiftcart.inventory_service.dto.InventoryEvent;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.service.StockService;
+import com.swiftcart.inventory_service.service.StockWarmupService;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// End-to-end load and oversell harness: the whole service against embedded Kafka and containerised
+// Postgres and Redis. Orders are produced to orders-events at a configurable rate and mix; latency is
+// measured up to the matching inventory-events record. Run with ./gradlew loadTest -Pload.orders=...
+// (see the load.* properties below); the summary is logged and written to build/load-test/summary.json.
+// Topic partitions are set by the @EmbeddedKafka annotation.
+@Tag("load")
+@Testcontainers
+@EmbeddedKafka(partitions = 12, topics = {"orders-events", "inventory-events", "inventory-dlq"})
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.swiftcart=WARN",
+        "logging.level.com.swiftcart.inventory_service.load=INFO",
+        "inventory.replenishment.consumer.enabled=false",
+        "inventory.stock.reconciliation.enabled=false",
+        "inventory.stock.warmup.enabled=false"
+})
+class OrderLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderLoadTest.class);
+    private static final String ORDERS_TOPIC = "orders-events";
+    private static final String INVENTORY_TOPIC = "inventory-events";
+    private static final String DLQ_TOPIC = "inventory-dlq";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.data.redis.host", REDIS::getHost);
+        registry.add("spring.data.redis.port", () -> REDIS.getMappedPort(6379));
+        registry.add("inventory.consumer.mode", () -> System.getProperty("load.consumer-mode", "record"));
+    }
+
+    private final int orders = Integer.getInteger("load.orders", 20_000);
+    private final int ratePerSecond = Integer.getInteger("load.rate", 0);
+    private final int products = Integer.getInteger("load.products", 1_000);
+    private final int initialStock = Integer.getInteger("load.initial-stock", 50);
+    private final int maxItemsPerOrder = Integer.getInteger("load.max-items", 3);
+    private final int maxQuantity = Integer.getInteger("load.max-quantity", 2);
+    private final String mixName = System.getProperty("load.mix", "uniform");
+    private final double zipfExponent = Double.parseDouble(System.getProperty("load.zipf-exponent", "1.1"));
+    private final double hotShare = Double.parseDouble(System.getProperty("load.hot-share", "0.9"));
+    private final long timeoutSeconds = Long.getLong("load.timeout-seconds", 300);
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockWarmupService stockWarmupService;
+
+    @Autowired
+    private InventoryEventCodec inventoryEventCodec;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String serviceGroupId;
+
+    private final Map<Long, Long> sentAtNanos = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> reservedByProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger answered = new AtomicInteger();
+    private final AtomicInteger reservedOrders = new AtomicInteger();
+    private final AtomicInteger rejectedOrders = new AtomicInteger();
+    private final AtomicInteger deadLettered = new AtomicInteger();
+    private final AtomicLong maxLag = new AtomicLong();
+    private final AtomicLong lastAnswerNanos = new AtomicLong();
+    private long[] latenciesNanos;
+
+    @Test
+    void ordersNeverOversellUnderLoad() throws Exception {
+        seedStock();
+        latenciesNanos = new long[orders];
+
+        ScheduledExecutorService lagSampler = Executors.newSingleThreadScheduledExecutor();
+        Thread responseReader = Thread.ofPlatform().name("load-responses").start(this::readResponses);
+        try (AdminClient admin = AdminClient.create(Map.of("bootstrap.servers", embeddedKafka.getBrokersAsString()))) {
+            lagSampler.scheduleAtFixedRate(() -> sampleLag(admin), 0, 500, TimeUnit.MILLISECONDS);
+
+            long start = System.nanoTime();
+            produceOrders();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (answered.get() + deadLettered.get() < orders && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            lagSampler.shutdownNow();
+            responseReader.interrupt();
+            responseReader.join();
+
+            report(start);
+        } finally {
+            lagSampler.shutdownNow();
+        }
+        assertNoOversellOrDrift();
+    }
+
+    private void seedStock() {
+        List<Object[]> rows = new ArrayList<>(products);
+        for (long productId = 1; productId <= products; productId++) {
+            rows.add(new Object[]{productId, initialStock});
+        }
+        jdbcTemplate.update("DELETE FROM inventory");
+        jdbcTemplate.batchUpdate("INSERT INTO inventory (product_id, available_quantity) VALUES (?, ?)", rows);
+        stockWarmupService.warmUp(true);
+    }
+
+    private void produceOrders() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.put("linger.ms", 5);
+        DefaultKafkaProducerFactory<String, OrderCreatedEvent> producerFactory =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new JsonSerializer<>());
+        KafkaTemplate<String, OrderCreatedEvent> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+
+        OrderMix mix = OrderMix.of(mixName, products, zipfExponent, hotShare);
+        SplittableRandom random = new SplittableRandom(42);
+        long intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+        long next = System.nanoTime();
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            // Open loop: orders keep their schedule however slowly the service answers
+            if (intervalNanos > 0) {
+                next += intervalNanos;
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            int items = random.nextInt(maxItemsPerOrder) + 1;
+            for (int i = 0; i < items; i++) {
+                quantities.merge(mix.nextProductId(random), random.nextInt(maxQuantity) + 1, Integer::sum);
+            }
+            List<OrderCreatedEvent.OrderItem> orderItems = quantities.entrySet().stream()
+                    .map(entry -> new OrderCreatedEvent.OrderItem(entry.getKey(), entry.getValue()))
+                    .toList();
+            OrderCreatedEvent event = new OrderCreatedEvent(1, "ORDER_CREATED", UUID.randomUUID().toString(),
+                    orderId, orderItems, LocalDateTime.now());
+
+            sentAtNanos.put(orderId, System.nanoTime());
+            kafkaTemplate.send(ORDERS_TOPIC, String.valueOf(orderId), event);
+        }
+        kafkaTemplate.flush();
+        producerFactory.destroy();
+    }
+
+    private void readResponses() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("load-harness", "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (KafkaConsumer<String, byte[]> consumer =
+                     new KafkaConsumer<>(props, new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(INVENTORY_TOPIC, DLQ_TOPIC));
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    if (DLQ_TOPIC.equals(record.topic())) {
+                        deadLettered.incrementAndGet();
+                    } else {
+                        onInventoryEvent(inventoryEventCodec.decode(record.value()));
+                    }
+                }
+            }
+        } catch (org.apache.kafka.common.errors.InterruptException e) {
+            // Interrupted by the test once every order is answered
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read inventory events", e);
+        }
+    }
+
+    private void onInventoryEvent(InventoryEvent event) {
+        Long sentAt = sentAtNanos.remove(event.getOrderId());
+        if (sentAt == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        latenciesNanos[answered.getAndIncrement()] = now - sentAt;
+        lastAnswerNanos.set(now);
+        if ("STOCK_RESERVED".equals(event.getEventType())) {
+            reservedOrders.incrementAndGet();
+            for (InventoryEvent.OrderItem item : event.getOrderItems()) {
+                reservedByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        } else {
+            rejectedOrders.incrementAndGet();
+        }
+    }
+
+    // Orders produced but not yet committed by the service's consumer group, over all partitions
+    private void sampleLag(AdminClient admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed =
+                    admin.listConsumerGroupOffsets(serviceGroupId).partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            for (int partition = 0; partition < embeddedKafka.getPartitionsPerTopic(); partition++) {
+                latest.put(new TopicPartition(ORDERS_TOPIC, partition), OffsetSpec.latest());
+            }
+            long lag = 0;
+            for (var end : admin.listOffsets(latest).all().get().entrySet()) {
+                OffsetAndMetadata offset = committed.get(end.getKey());
+                lag += end.getValue().offset() - (offset == null ? 0 : offset.offset());
+            }
+            maxLag.accumulateAndGet(lag, Math::max);
+        } catch (Exception e) {
+            // Sampling is best effort; the group may not have committed anything yet
+        }
+    }
+
+    private void report(long startNanos) throws Exception {
+        int count = answered.get();
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        double seconds = (lastAnswerNanos.get() - startNanos) / 1e9;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mix", mixName);
+        summary.put("consumerMode", System.getProperty("load.consumer-mode", "record"));
+        summary.put("partitions", embeddedKafka.getPartitionsPerTopic());
+        summary.put("orders", orders);
+        summary.put("offeredRatePerSecond", ratePerSecond);
+        summary.put("answered", count);
+        summary.put("reserved", reservedOrders.get());
+        summary.put("rejected", rejectedOrders.get());
+        summary.put("deadLettered", deadLettered.get());
+        summary.put("throughputPerSecond", count == 0 ? 0 : Math.round(count / seconds));
+        summary.put("latencyP50Ms", percentileMs(sorted, 0.50));
+        summary.put("latencyP99Ms", percentileMs(sorted, 0.99));
+        summary.put("latencyP999Ms", percentileMs(sorted, 0.999));
+        summary.put("latencyMaxMs", percentileMs(sorted, 1.0));
+        summary.put("maxConsumerLag", maxLag.get());
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path output = Path.of("build", "load-test", "summary.json");
+        Files.createDirectories(output.getParent());
+        objectMapper.writeValue(output.toFile(), summary);
+        log.info("Load test summary: {}", objectMapper.writeValueAsString(summary));
+
+        assertThat(count + deadLettered.get()).as("orders answered before the timeout").isEqualTo(orders);
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private void assertNoOversellOrDrift() {
+        List<Long> productIds = new ArrayList<>();
+        for (long productId = 1; productId <= products; productId++) {
+            productIds.add(productId);
+        }
+        Map<Long, Integer> database = inventoryRepository.findQuantities(productIds);
+        Map<Long, Long> redis = stockService.readStock(productIds);
+
+        long totalReserved = reservedByProduct.values().stream().mapToLong(Integer::longValue).sum();
+        assertThat(totalReserved).as("total reserved quantity").isLessThanOrEqualTo((long) products * initialStock);
+
+        Map<Long, String> violations = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            int reserved = reservedByProduct.getOrDefault(productId, 0);
+            Integer inDatabase = database.get(productId);
+            Long inRedis = redis.get(productId);
+            if (reserved > initialStock) {
+                violations.put(productId, "oversold: reserved " + reserved + " of " + initialStock);
+            } else if (inDatabase == null || inDatabase != initialStock - reserved) {
+                violations.put(productId, "database " + inDatabase + " != " + (initialStock - reserved));
+            } else if (inRedis != null && inRedis.intValue() != inDatabase) {
+                violations.put(productId, "redis " + inRedis + " != database " + inDatabase);
+            }
+        }
+        assertThat(violations)
+                .as("products oversold or drifted: %s", violations.entrySet().stream().limit(20)
+                        .map(entry -> entry.getKey() + " " + entry.getValue()).collect(Collectors.joining(", ")))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package com.swiftcart.inventory_service.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Picks the product of each order item for a traffic mix:
+// uniform over the catalog, Zipf-skewed by rank, or a flash sale where most items hit one SKU
+abstract class OrderMix {
+
+    abstract long nextProductId(SplittableRandom random);
+
+    static OrderMix of(String name, int products, double zipfExponent, double hotShare) {
+        return switch (name) {
+            case "uniform" -> new Uniform(products);
+            case "zipf" -> new Zipf(products, zipfExponent);
+            case "flash" -> new FlashSale(products, hotShare);
+            default -> throw new IllegalArgumentException("Unknown load.mix: " + name + " (uniform, zipf or flash)");
+        };
+    }
+
+    private static class Uniform extends OrderMix {
+        private final int products;
+
+        private Uniform(int products) {
+            this.products = products;
+        }
+
+        @Override
+        long nextProductId(SplittableRandom random) {
+            return random.nextInt(products) + 1;
+        }
+    }
+
+    // Product k (1-based rank) is picked with probability proportional to 1 / k^exponent
+    private static class Zipf extends OrderMix {
+        private final double[] cumulative;
+
+        private Zipf(int products, double exponent) {
+            cumulative = new double[products];
+            double sum = 0;
+            for (int k = 1; k <= products; k++) {
+                sum += 1 / Math.pow(k, exponent);
+                cumulative[k - 1] = sum;
+            }
+            for (int i = 0; i < products; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        @Override
+        long nextProductId(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+    }
+
+    // Product 1 is the hot SKU
+    private static class FlashSale extends OrderMix {
+        private final int products;
+        private final double hotShare;
+
+        private FlashSale(int products, double hotShare) {
+            this.products = products;
+            this.hotShare = hotShare;
+        }
+
+        @Override
+        long nextProductId(SplittableRandom random) {
+            return random.nextDouble() < hotShare ? 1 : random.nextInt(products) + 1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.swiftcart.inventory_service.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The guarded stock statements against a real PostgreSQL
+@Testcontainers
+class InventoryRepositoryImplTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static InventoryRepositoryImpl inventoryRepository;
+
+    @BeforeAll
+    static void connect() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE inventory (product_id BIGINT PRIMARY KEY, available_quantity INTEGER NOT NULL)");
+        inventoryRepository = new InventoryRepositoryImpl(new NamedParameterJdbcTemplate(dataSource));
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE inventory");
+    }
+
+    @Test
+    void decrementStockSkipsProductsThatWouldGoNegative() {
+        insert(1L, 5);
+        insert(2L, 1);
+
+        Map<Long, Integer> updated = inventoryRepository.decrementStock(Map.of(1L, 3, 2L, 2, 3L, 1));
+
+        assertThat(updated).containsEntry(1L, 1).containsEntry(2L, 0).containsEntry(3L, 0);
+        assertThat(inventoryRepository.findQuantities(List.of(1L, 2L))).containsEntry(1L, 2).containsEntry(2L, 1);
+    }
+
+    @Test
+    void incrementStockGivesBackWhatWasDecremented() {
+        insert(1L, 5);
+        inventoryRepository.decrementStock(Map.of(1L, 3));
+
+        inventoryRepository.incrementStock(Map.of(1L, 3));
+
+        assertThat(inventoryRepository.findQuantities(List.of(1L))).containsEntry(1L, 5);
+    }
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        insert(1L, 10);
+        insert(2L, 10);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> decrements = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                decrements.add(() -> inventoryRepository.decrementStock(Map.of(1L, 1, 2L, 1)).get(1L));
+            }
+            int granted = 0;
+            for (Future<Integer> updated : callers.invokeAll(decrements)) {
+                granted += updated.get();
+            }
+            assertThat(granted).isEqualTo(10);
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(inventoryRepository.findQuantities(List.of(1L, 2L))).containsEntry(1L, 0).containsEntry(2L, 0);
+    }
+
+    private static void insert(Long productId, int quantity) {
+        jdbcTemplate.update("INSERT INTO inventory (product_id, available_quantity) VALUES (?, ?)", productId, quantity);
+    }
+}
@@ -0,0 +1,144 @@
+package com.swiftcart.inventory_service.repository;
+
+import com.swiftcart.inventory_service.entity.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Outbox claiming against a real PostgreSQL: each test transaction plays one service instance
+@Testcontainers
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxEventRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    // Oldest first
+    private final List<UUID> eventIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        outboxEventRepository.deleteAllInBatch();
+        OffsetDateTime createdAt = OffsetDateTime.now().minusMinutes(1);
+        for (long aggregateId = 1; aggregateId <= 10; aggregateId++) {
+            eventIds.add(outboxEventRepository.save(event(aggregateId, createdAt.plusSeconds(aggregateId))).getId());
+        }
+    }
+
+    @Test
+    void claimReturnsTheOldestPage() {
+        List<UUID> claimed = transactionTemplate.execute(status -> ids(outboxEventRepository.claimUnpublished(4)));
+
+        assertThat(claimed).containsExactlyElementsOf(eventIds.subList(0, 4));
+    }
+
+    @Test
+    void concurrentClaimsSkipRowsLockedByAnotherInstance() throws Exception {
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+        ExecutorService firstInstance = Executors.newSingleThreadExecutor();
+        try {
+            // Holds its page locked until the second instance has claimed
+            Future<List<UUID>> first = firstInstance.submit(() -> transactionTemplate.execute(status -> {
+                List<UUID> claimed = ids(outboxEventRepository.claimUnpublished(4));
+                firstClaimed.countDown();
+                try {
+                    assertThat(secondClaimed.await(30, TimeUnit.SECONDS)).isTrue();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return claimed;
+            }));
+            assertThat(firstClaimed.await(30, TimeUnit.SECONDS)).isTrue();
+
+            List<UUID> second = transactionTemplate.execute(status -> ids(outboxEventRepository.claimUnpublished(10)));
+            secondClaimed.countDown();
+
+            assertThat(first.get(30, TimeUnit.SECONDS)).containsExactlyElementsOf(eventIds.subList(0, 4));
+            assertThat(second).containsExactlyElementsOf(eventIds.subList(4, 10));
+        } finally {
+            firstInstance.shutdownNow();
+        }
+    }
+
+    @Test
+    void rowsOfARolledBackClaimAreClaimedAgain() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxEventRepository.claimUnpublished(4);
+            status.setRollbackOnly();
+        });
+
+        List<UUID> claimed = transactionTemplate.execute(status -> ids(outboxEventRepository.claimUnpublished(4)));
+
+        assertThat(claimed).containsExactlyElementsOf(eventIds.subList(0, 4));
+    }
+
+    @Test
+    void publishedRowsAreNotClaimedAgain() {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.markPublished(ids(outboxEventRepository.claimUnpublished(4))));
+
+        List<UUID> claimed = transactionTemplate.execute(status -> ids(outboxEventRepository.claimUnpublished(10)));
+
+        assertThat(claimed).containsExactlyElementsOf(eventIds.subList(4, 10));
+        assertThat(outboxEventRepository.countByPublishedFalse()).isEqualTo(6);
+        assertThat(outboxEventRepository.findById(eventIds.get(0))).get()
+                .satisfies(event -> assertThat(event.isPublished()).isTrue())
+                .satisfies(event -> assertThat(event.getVersion()).isEqualTo(1L));
+    }
+
+    private static List<UUID> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).toList();
+    }
+
+    private static OutboxEvent event(long aggregateId, OffsetDateTime createdAt) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType("Inventory");
+        event.setAggregateId(aggregateId);
+        event.setEventType("INVENTORY_RESERVED");
+        event.setPayload(("{\"orderId\":" + aggregateId + "}").getBytes());
+        event.setCreatedAt(createdAt);
+        return event;
+    }
+}
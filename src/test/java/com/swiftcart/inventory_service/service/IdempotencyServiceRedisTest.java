@@ -0,0 +1,155 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.config.RedisConfig;
+import com.swiftcart.inventory_service.entity.OrderEventLog;
+import com.swiftcart.inventory_service.repository.OrderEventLogRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The three levels of the duplicate check: the local cache, SET NX in a real Redis, and the
+// order_event_log table (mocked) while Redis is skipped or failing
+@Testcontainers
+class IdempotencyServiceRedisTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final OrderEventLogRepository orderEventLogRepository = mock(OrderEventLogRepository.class);
+    private final RedisCircuitBreaker redisCircuitBreaker = mock(RedisCircuitBreaker.class);
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = idempotencyService(redisTemplate);
+    }
+
+    @Test
+    void repeatedClaimIsAnsweredByTheLocalCache() {
+        assertThat(idempotencyService.claim("req-1")).isTrue();
+        // Gone from Redis, so only the local cache can still know it
+        redisTemplate.delete("idempotency:request:req-1");
+
+        assertThat(idempotencyService.claim("req-1")).isFalse();
+        assertThat(checks("local", "duplicate")).isEqualTo(1);
+        assertThat(checks("redis", "new")).isEqualTo(1);
+    }
+
+    @Test
+    void claimOfAnotherInstanceIsFoundInRedis() {
+        IdempotencyService otherInstance = idempotencyService(redisTemplate);
+        assertThat(otherInstance.claim("req-1")).isTrue();
+
+        assertThat(idempotencyService.claim("req-1")).isFalse();
+        assertThat(checks("redis", "duplicate")).isEqualTo(1);
+        verify(orderEventLogRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void requestIdRepeatedInOneBatchIsClaimedOnce() {
+        assertThat(idempotencyService.claimAll(List.of("req-1", "req-2", "req-1"))).containsExactly("req-1", "req-2");
+    }
+
+    @Test
+    void releasedClaimCanBeClaimedAgain() {
+        assertThat(idempotencyService.claim("req-1")).isTrue();
+
+        idempotencyService.release(List.of("req-1"));
+
+        assertThat(idempotencyService.claim("req-1")).isTrue();
+    }
+
+    @Test
+    void databaseAnswersWhileTheBreakerIsOpen() {
+        when(redisCircuitBreaker.allowRequest()).thenReturn(false);
+        when(orderEventLogRepository.findAllById(anyIterable())).thenReturn(List.of(processed("req-1")));
+
+        assertThat(idempotencyService.claimAll(List.of("req-1", "req-2"))).containsExactly("req-2");
+        assertThat(checks("database", "duplicate")).isEqualTo(1);
+        assertThat(redisTemplate.hasKey("idempotency:request:req-2")).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void databaseAnswersWhenRedisFails() {
+        RedisTemplate<String, Object> failingTemplate = mock(RedisTemplate.class);
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("Redis down");
+        when(failingTemplate.executePipelined(any(RedisCallback.class))).thenThrow(failure);
+        idempotencyService = idempotencyService(failingTemplate);
+        when(orderEventLogRepository.findAllById(anyIterable())).thenReturn(List.of(processed("req-1")));
+
+        assertThat(idempotencyService.claimAll(List.of("req-1", "req-2"))).containsExactly("req-2");
+        verify(redisCircuitBreaker).recordFailure(failure);
+    }
+
+    @Test
+    void claimsMadeWithoutRedisAreWrittenBackOnRecovery() {
+        when(redisCircuitBreaker.allowRequest()).thenReturn(false);
+        assertThat(idempotencyService.claim("req-1")).isTrue();
+
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+        idempotencyService.onRedisRecovered(new RedisRecoveredEvent(new LinkedHashMap<>()));
+
+        // Another instance, with nothing cached locally, now sees it in Redis
+        assertThat(idempotencyService(redisTemplate).claim("req-1")).isFalse();
+    }
+
+    private IdempotencyService idempotencyService(RedisTemplate<String, Object> template) {
+        return new IdempotencyService(template, orderEventLogRepository, redisCircuitBreaker,
+                Duration.ofHours(1), 1_000, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    private double checks(String source, String result) {
+        return meterRegistry.get("inventory.idempotency.checks").tag("source", source).tag("result", result).counter().count();
+    }
+
+    private static OrderEventLog processed(String requestId) {
+        return new OrderEventLog(requestId, 1L, "ORDER_CREATED", OrderEventLog.OUTCOME_RESERVED);
+    }
+}
@@ -0,0 +1,163 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.codec.InventoryEventCodec;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.repository.OrderEventLogRepository;
+import com.swiftcart.inventory_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Order processing against mocked repositories and Redis: the guarded all-or-nothing database decrement,
+// what is given back when it or the rest of the transaction fails, and DB-only mode while the breaker is open
+class InventoryServiceTest {
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+    private final StockService stockService = mock(StockService.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    // Deltas each RedisRecoveredEvent carried
+    private final List<Map<Long, Integer>> resynced = new ArrayList<>();
+    private RedisCircuitBreaker redisCircuitBreaker;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ApplicationEventPublisher recoveryPublisher = event -> resynced.add(new LinkedHashMap<>(((RedisRecoveredEvent) event).getStockDeltas()));
+        redisCircuitBreaker = new RedisCircuitBreaker(mock(RedisTemplate.class), recoveryPublisher, 1, Duration.ZERO, new SimpleMeterRegistry());
+        inventoryService = new InventoryService(
+                mock(OrderEventLogRepository.class),
+                inventoryRepository,
+                outboxEventRepository,
+                stockService,
+                idempotencyService,
+                redisCircuitBreaker,
+                mock(ProductCatalogCache.class),
+                mock(InventoryEventCodec.class),
+                new TransactionTemplate(new NoOpTransactionManager()),
+                mock(ApplicationEventPublisher.class),
+                new OrderPipelineMetrics(new SimpleMeterRegistry()));
+        when(idempotencyService.claimAll(anyList())).thenAnswer(invocation -> new LinkedHashSet<>(invocation.<List<String>>getArgument(0)));
+    }
+
+    @Test
+    void databaseOnlyReservationIsResyncedToRedisAsDeltas() {
+        redisCircuitBreaker.recordFailure(new RedisConnectionFailureException("Redis down"));
+        when(inventoryRepository.decrementStock(anyMap())).thenAnswer(invocation -> updatedRows(invocation.getArgument(0)));
+
+        Map<OrderCreatedEvent, Exception> failures = inventoryService.processOrderCreatedEvents(List.of(
+                order("req-1", 1L, item(1L, 2), item(2L, 1)),
+                order("req-2", 2L, item(1L, 3))));
+
+        assertThat(failures).isEmpty();
+        verify(stockService, never()).reserveStockForOrders(any());
+        verify(stockService, never()).reserveStockBatch(any());
+
+        redisCircuitBreaker.probe();
+
+        assertThat(resynced).containsExactly(Map.of(1L, -5, 2L, -1));
+        assertThat(redisCircuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void rejectedDatabaseOnlyReservationLeavesNothingToResync() {
+        redisCircuitBreaker.recordFailure(new RedisConnectionFailureException("Redis down"));
+        // Product 2 is short
+        when(inventoryRepository.decrementStock(anyMap())).thenReturn(Map.of(1L, 1));
+
+        Map<OrderCreatedEvent, Exception> failures = inventoryService.processOrderCreatedEvents(List.of(
+                order("req-1", 1L, item(1L, 2), item(2L, 1))));
+
+        assertThat(failures).isEmpty();
+        verify(inventoryRepository).incrementStock(Map.of(1L, 2));
+
+        redisCircuitBreaker.probe();
+
+        assertThat(resynced).containsExactly(Map.of());
+    }
+
+    @Test
+    void redisReservationTheDatabaseCannotCoverIsRolledBack() {
+        when(idempotencyService.claim("req-1")).thenReturn(true);
+        when(stockService.reserveStockBatch(anyList())).thenReturn(new BatchReservationResult(true, List.of(
+                new BatchReservationResult.ItemResult(1L, 2, BatchReservationResult.ItemStatus.AVAILABLE, 8L),
+                new BatchReservationResult.ItemResult(2L, 1, BatchReservationResult.ItemStatus.AVAILABLE, 0L))));
+        // Redis is ahead of the database for product 2
+        when(inventoryRepository.decrementStock(anyMap())).thenReturn(Map.of(1L, 1, 2L, 0));
+
+        inventoryService.processOrderCreatedEvent(order("req-1", 1L, item(1L, 2), item(2L, 1)));
+
+        // The database gives back product 1 and Redis the whole order
+        verify(inventoryRepository).incrementStock(Map.of(1L, 2));
+        verify(stockService).releaseStock(Map.of(1L, 2, 2L, 1));
+        verify(outboxEventRepository).save(argThat(outboxEvent -> outboxEvent.getEventType().equals("ORDER_CANCELLED")));
+    }
+
+    @Test
+    void redisReservationIsGivenBackWhenTheDatabaseFails() {
+        when(idempotencyService.claim("req-1")).thenReturn(true);
+        when(stockService.reserveStockBatch(anyList())).thenReturn(new BatchReservationResult(true, List.of(
+                new BatchReservationResult.ItemResult(1L, 2, BatchReservationResult.ItemStatus.AVAILABLE, 8L))));
+        when(inventoryRepository.decrementStock(anyMap())).thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertThatThrownBy(() -> inventoryService.processOrderCreatedEvent(order("req-1", 1L, item(1L, 2))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        verify(stockService).releaseStock(Map.of(1L, 2));
+        verify(inventoryRepository, never()).incrementStock(anyMap());
+    }
+
+    @Test
+    void redisReservationIsGivenBackWhenTheTransactionRollsBack() {
+        when(idempotencyService.claim("req-1")).thenReturn(true);
+        when(stockService.reserveStockBatch(anyList())).thenReturn(new BatchReservationResult(true, List.of(
+                new BatchReservationResult.ItemResult(1L, 2, BatchReservationResult.ItemStatus.AVAILABLE, 8L))));
+        when(inventoryRepository.decrementStock(anyMap())).thenAnswer(invocation -> updatedRows(invocation.getArgument(0)));
+        when(outboxEventRepository.save(any())).thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertThatThrownBy(() -> new TransactionTemplate(new NoOpTransactionManager()).executeWithoutResult(
+                status -> inventoryService.processOrderCreatedEvent(order("req-1", 1L, item(1L, 2)))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // Given back once, after the rollback
+        verify(stockService).releaseStock(Map.of(1L, 2));
+    }
+
+    private static Map<Long, Integer> updatedRows(Map<Long, Integer> quantities) {
+        return quantities.keySet().stream().collect(Collectors.toMap(productId -> productId, productId -> 1));
+    }
+
+    private static OrderCreatedEvent order(String requestId, Long orderId, OrderCreatedEvent.OrderItem... items) {
+        return new OrderCreatedEvent(1, "ORDER_CREATED", requestId, orderId, List.of(items), LocalDateTime.now());
+    }
+
+    private static OrderCreatedEvent.OrderItem item(Long productId, int quantity) {
+        return new OrderCreatedEvent.OrderItem(productId, quantity);
+    }
+}
@@ -0,0 +1,45 @@
+package com.swiftcart.inventory_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    @Test
+    void keepsEveryEntryAcrossResizes() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, (int) (key * 3));
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        for (long key = 1; key <= 10_000; key++) {
+            assertThat(map.get(key, -1)).isEqualTo((int) (key * 3));
+        }
+        assertThat(map.get(10_001, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void overwritesWithoutGrowing() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        map.put(42, 1);
+        map.put(42, 2);
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(42, -1)).isEqualTo(2);
+    }
+
+    @Test
+    void keyZeroIsKeptOnTheSide() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        assertThat(map.get(0, -1)).isEqualTo(-1);
+
+        map.put(0, 7);
+        map.put(Long.MIN_VALUE, 8);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(0, -1)).isEqualTo(7);
+        assertThat(map.get(Long.MIN_VALUE, -1)).isEqualTo(8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.OrderStatusEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Offsets of an order status poll are committed only once its holds are settled
+class OrderStatusConsumerServiceTest {
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final StockHoldService stockHoldService = mock(StockHoldService.class);
+    private final RedisCircuitBreaker redisCircuitBreaker = mock(RedisCircuitBreaker.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private OrderStatusConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new OrderStatusConsumerService(stockHoldService, redisCircuitBreaker, RETRY_BACKOFF);
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+    }
+
+    @Test
+    void pollIsRedeliveredWhenConfirmingFails() {
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("Redis down");
+        doThrow(failure).when(stockHoldService).confirm(anyCollection());
+
+        consumer.consumeOrderStatusEvents(List.of(
+                record(0, OrderStatusEvent.ORDER_CONFIRMED, 1L),
+                record(1, OrderStatusEvent.ORDER_CANCELLED, 2L)), acknowledgment);
+
+        verify(acknowledgment).nack(0, RETRY_BACKOFF);
+        verify(acknowledgment, never()).acknowledge();
+        verify(redisCircuitBreaker).recordFailure(failure);
+    }
+
+    @Test
+    void pollIsRedeliveredWithoutSettlingWhileTheBreakerIsOpen() {
+        when(redisCircuitBreaker.allowRequest()).thenReturn(false);
+
+        consumer.consumeOrderStatusEvents(List.of(record(0, OrderStatusEvent.ORDER_CONFIRMED, 1L)), acknowledgment);
+
+        verify(stockHoldService, never()).confirm(anyCollection());
+        verify(acknowledgment).nack(0, RETRY_BACKOFF);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void pollIsAcknowledgedOnceItsHoldsAreSettled() {
+        consumer.consumeOrderStatusEvents(List.of(
+                record(0, OrderStatusEvent.ORDER_CONFIRMED, 1L),
+                record(1, OrderStatusEvent.PAYMENT_FAILED, 2L)), acknowledgment);
+
+        verify(stockHoldService).confirm(Set.of(1L));
+        verify(stockHoldService).release(Set.of(2L), OrderStatusEvent.PAYMENT_FAILED);
+        verify(acknowledgment).acknowledge();
+        verify(acknowledgment, never()).nack(anyInt(), any(Duration.class));
+    }
+
+    private static ConsumerRecord<String, OrderStatusEvent> record(long offset, String eventType, Long orderId) {
+        OrderStatusEvent event = new OrderStatusEvent(1, eventType, "req-" + orderId, orderId, null);
+        return new ConsumerRecord<>("order-status-events", 0, offset, String.valueOf(orderId), event);
+    }
+}
@@ -0,0 +1,152 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.entity.OutboxEvent;
+import com.swiftcart.inventory_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The publisher pipeline against a mocked broker: at most maxInFlight unacknowledged sends, and acks
+// flushed to the outbox in one markPublished per window
+class OutboxEventPublisherServiceTest {
+    private static final String TOPIC = "inventory-events";
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    // Ids passed to each markPublished call
+    private final List<List<UUID>> markedPublished = new CopyOnWriteArrayList<>();
+    private final ExecutorService caller = Executors.newSingleThreadExecutor();
+    private SimpleMeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        caller.shutdownNow();
+    }
+
+    @Test
+    void sendsBeyondTheWindowWaitForAnAck() throws Exception {
+        List<OutboxEvent> events = events(5);
+        when(outboxEventRepository.claimUnpublished(anyInt())).thenReturn(events, List.of());
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new CopyOnWriteArrayList<>();
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class))).thenAnswer(invocation -> {
+            CompletableFuture<SendResult<String, byte[]>> send = new CompletableFuture<>();
+            sends.add(send);
+            return send;
+        });
+        OutboxEventPublisherService publisher = publisher(10, 2);
+
+        Future<?> publishing = caller.submit(publisher::publishOutboxEvents);
+
+        verify(kafkaTemplate, after(200).times(2)).send(eq(TOPIC), anyString(), any(byte[].class));
+        sends.get(0).complete(null);
+        verify(kafkaTemplate, timeout(5_000).times(3)).send(eq(TOPIC), anyString(), any(byte[].class));
+        verify(kafkaTemplate, after(200).times(3)).send(eq(TOPIC), anyString(), any(byte[].class));
+
+        // Release the rest as they come in
+        for (int i = 1; i < events.size(); i++) {
+            verify(kafkaTemplate, timeout(5_000).times(Math.min(i + 2, events.size()))).send(eq(TOPIC), anyString(), any(byte[].class));
+            sends.get(i).complete(null);
+        }
+        publishing.get(5, TimeUnit.SECONDS);
+
+        assertThat(markedPublished.stream().flatMap(List::stream)).containsExactlyInAnyOrderElementsOf(ids(events));
+    }
+
+    @Test
+    void acksAreFlushedOncePerWindow() {
+        List<OutboxEvent> events = events(5);
+        when(outboxEventRepository.claimUnpublished(anyInt())).thenReturn(events);
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher(10, 2).publishOutboxEvents();
+
+        assertThat(markedPublished).containsExactly(
+                ids(events.subList(0, 2)), ids(events.subList(2, 4)), ids(events.subList(4, 5)));
+        assertThat(meterRegistry.get("inventory.outbox.events.published").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void failedSendIsLeftUnpublished() {
+        List<OutboxEvent> events = events(3);
+        when(outboxEventRepository.claimUnpublished(anyInt())).thenReturn(events);
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class))).thenReturn(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.failedFuture(new IllegalStateException("broker down")),
+                CompletableFuture.completedFuture(null));
+
+        publisher(10, 10).publishOutboxEvents();
+
+        assertThat(markedPublished).containsExactly(List.of(events.get(0).getId(), events.get(2).getId()));
+        assertThat(meterRegistry.get("inventory.outbox.events.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fullPagesAreFollowedByAnotherClaim() {
+        List<OutboxEvent> events = events(5);
+        when(outboxEventRepository.claimUnpublished(2)).thenReturn(events.subList(0, 2), events.subList(2, 4), events.subList(4, 5));
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher(2, 10).publishOutboxEvents();
+
+        verify(outboxEventRepository, times(3)).claimUnpublished(2);
+        assertThat(markedPublished.stream().flatMap(List::stream)).containsExactlyElementsOf(ids(events));
+    }
+
+    private OutboxEventPublisherService publisher(int batchSize, int maxInFlight) {
+        when(outboxEventRepository.markPublished(any())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            markedPublished.add(new ArrayList<>(ids));
+            return ids.size();
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        return new OutboxEventPublisherService(outboxEventRepository, kafkaTemplate,
+                new TransactionTemplate(new NoOpTransactionManager()), TOPIC, batchSize, 5_000, maxInFlight, meterRegistry);
+    }
+
+    private static List<OutboxEvent> events(int count) {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (long aggregateId = 1; aggregateId <= count; aggregateId++) {
+            OutboxEvent event = new OutboxEvent();
+            event.setId(UUID.randomUUID());
+            event.setAggregateType("Inventory");
+            event.setAggregateId(aggregateId);
+            event.setEventType("INVENTORY_RESERVED");
+            event.setPayload(new byte[]{1});
+            event.setCreatedAt(OffsetDateTime.now());
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static List<UUID> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package com.swiftcart.inventory_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Opening, DB-only transactions and the delta resync on recovery; Redis itself is mocked
+class RedisCircuitBreakerTest {
+    private static final RedisConnectionFailureException DOWN = new RedisConnectionFailureException("Redis down");
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    // Copies of the deltas each RedisRecoveredEvent carried, in publishing order
+    private final List<Map<Long, Integer>> published = new ArrayList<>();
+    // Stands in for StockWarmupService: applies the deltas it is given and removes them from the event
+    private Consumer<Map<Long, Integer>> listener = deltas -> deltas.clear();
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new RedisCircuitBreaker(redisTemplate, event -> {
+            Map<Long, Integer> deltas = ((RedisRecoveredEvent) event).getStockDeltas();
+            published.add(new LinkedHashMap<>(deltas));
+            listener.accept(deltas);
+        }, 3, Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void opensOnlyAfterConsecutiveConnectionFailures() {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(new InvalidDataAccessApiUsageException("script error"));
+        }
+        breaker.recordFailure(DOWN);
+        breaker.recordFailure(DOWN);
+        breaker.recordSuccess();
+        breaker.recordFailure(DOWN);
+        breaker.recordFailure(DOWN);
+        assertThat(breaker.allowRequest()).isTrue();
+
+        breaker.recordFailure(DOWN);
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void staysOpenWhileRedisDoesNotAnswer() {
+        open();
+        when(redisTemplate.execute(any(RedisCallback.class))).thenThrow(DOWN);
+
+        breaker.probe();
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(published).isEmpty();
+    }
+
+    @Test
+    void resyncPublishesTheSummedDeltasAndCloses() {
+        open();
+        breaker.recordChangedStock(Map.of(1L, -2));
+        breaker.recordChangedStock(Map.of(1L, -1, 2L, 5));
+        breaker.recordChangedStock(Map.of(3L, 4));
+        breaker.recordChangedStock(Map.of(3L, -4));
+
+        breaker.probe();
+
+        // Deltas that cancel out are not resynced at all
+        assertThat(published).containsExactly(Map.of(1L, -3, 2L, 5));
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void resyncPublishesOnceEvenWithNothingChanged() {
+        open();
+
+        breaker.probe();
+
+        assertThat(published).containsExactly(Map.of());
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void databaseOnlyTransactionsAreRefusedWhileClosed() {
+        assertThat(breaker.enterDatabaseOnly()).isFalse();
+
+        open();
+
+        assertThat(breaker.enterDatabaseOnly()).isTrue();
+    }
+
+    @Test
+    void staysHalfOpenUntilDatabaseOnlyTransactionsComplete() {
+        open();
+        assertThat(breaker.enterDatabaseOnly()).isTrue();
+
+        breaker.probe();
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+        // Orders arriving during the resync still go to the database
+        assertThat(breaker.enterDatabaseOnly()).isTrue();
+
+        breaker.exitDatabaseOnly(Map.of(1L, -2));
+        breaker.exitDatabaseOnly(Map.of());
+        // The probe did not wait for them; the next one resyncs what they changed and closes
+        breaker.probe();
+
+        assertThat(published).containsExactly(Map.of(), Map.of(1L, -2));
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedResyncReopensAndRetriesOnlyWhatWasNotApplied() {
+        open();
+        breaker.recordChangedStock(Map.of(1L, -2, 2L, -3));
+        listener = deltas -> {
+            deltas.remove(1L);
+            throw DOWN;
+        };
+
+        breaker.probe();
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+
+        listener = deltas -> deltas.clear();
+        breaker.recordChangedStock(Map.of(2L, -1));
+        breaker.probe();
+
+        assertThat(published).containsExactly(Map.of(1L, -2, 2L, -3), Map.of(2L, -4));
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(DOWN);
+        }
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+}
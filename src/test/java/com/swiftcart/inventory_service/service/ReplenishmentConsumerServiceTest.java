@@ -0,0 +1,93 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.dto.ReplenishmentEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import com.swiftcart.inventory_service.repository.ReplenishmentReceiptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Offsets of a replenishment poll are committed only once its receipts are in the database
+class ReplenishmentConsumerServiceTest {
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+    private final ReplenishmentReceiptRepository replenishmentReceiptRepository = mock(ReplenishmentReceiptRepository.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private ReplenishmentService replenishmentService;
+    private ReplenishmentConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        replenishmentService = new ReplenishmentService(
+                inventoryRepository,
+                replenishmentReceiptRepository,
+                mock(StockService.class),
+                mock(RedisCircuitBreaker.class),
+                mock(ProductCatalogCache.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                5_000,
+                0,
+                new SimpleMeterRegistry());
+        consumer = new ReplenishmentConsumerService(replenishmentService, RETRY_BACKOFF);
+        when(replenishmentReceiptRepository.claimNew(anyCollection())).thenReturn(Set.of("receipt-1"));
+    }
+
+    @Test
+    void pollIsRedeliveredWhenTheReceiptsCannotBeApplied() throws Exception {
+        doThrow(new DataAccessResourceFailureException("database down")).when(inventoryRepository).upsertStock(anyMap());
+
+        consumeAndFlush(record(0, "receipt-1"));
+
+        verify(acknowledgment).nack(0, RETRY_BACKOFF);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void pollIsAcknowledgedOnceTheReceiptsAreApplied() throws Exception {
+        consumeAndFlush(record(0, "receipt-1"));
+
+        verify(inventoryRepository).upsertStock(anyMap());
+        verify(acknowledgment).acknowledge();
+        verify(acknowledgment, never()).nack(anyInt(), any(Duration.class));
+    }
+
+    // The listener waits for the window it joined, so flush from here until it returns
+    private void consumeAndFlush(ConsumerRecord<String, ReplenishmentEvent> record) throws Exception {
+        CompletableFuture<Void> consumed = CompletableFuture.runAsync(
+                () -> consumer.consumeReplenishmentEvents(List.of(record), acknowledgment));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!consumed.isDone() && System.nanoTime() < deadline) {
+            replenishmentService.flush();
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(consumed).succeedsWithin(Duration.ofSeconds(1));
+    }
+
+    private static ConsumerRecord<String, ReplenishmentEvent> record(long offset, String requestId) {
+        ReplenishmentEvent event = new ReplenishmentEvent(1, requestId, List.of(new ReplenishmentEvent.Item(42L, 5)), null);
+        return new ConsumerRecord<>("inventory-replenishment", 0, offset, requestId, event);
+    }
+}
@@ -0,0 +1,159 @@
+package com.swiftcart.inventory_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservationCoalescerTest {
+    private static final long PRODUCT_ID = 1L;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    // Stock given back for callers that gave up, per product
+    private final Map<Long, Integer> released = new ConcurrentHashMap<>();
+    private ReservationCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    void callerGivesUpWhenTheScriptCallHangs() {
+        coalescer = coalescer((productId, quantities) -> {
+            awaitUnblock();
+            return grantAll(productId, quantities);
+        }, 1_000, 64, 100);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> coalescer.reserve(PRODUCT_ID, 1))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("timed out");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+    }
+
+    @Test
+    void stockGrantedAfterTheCallerGaveUpIsGivenBack() throws Exception {
+        CountDownLatch scriptDone = new CountDownLatch(1);
+        coalescer = coalescer((productId, quantities) -> {
+            awaitUnblock();
+            scriptDone.countDown();
+            return grantAll(productId, quantities);
+        }, 1_000, 64, 100);
+
+        assertThatThrownBy(() -> coalescer.reserve(PRODUCT_ID, 3)).hasMessageContaining("timed out");
+        assertThat(released).isEmpty();
+
+        unblock.countDown();
+        assertThat(scriptDone.await(2, TimeUnit.SECONDS)).isTrue();
+        await(() -> released.containsKey(PRODUCT_ID));
+        assertThat(released).containsEntry(PRODUCT_ID, 3);
+    }
+
+    @Test
+    void callerThatGaveUpBeforeTheFlushIsLeftOutOfTheBatch() {
+        List<List<Integer>> scriptCalls = new CopyOnWriteArrayList<>();
+        coalescer = coalescer((productId, quantities) -> {
+            scriptCalls.add(List.copyOf(quantities));
+            return grantAll(productId, quantities);
+        }, TimeUnit.SECONDS.toMicros(30), 64, 100);
+
+        assertThatThrownBy(() -> coalescer.reserve(PRODUCT_ID, 1)).hasMessageContaining("timed out");
+        // Flushes the batch the caller joined
+        coalescer.shutdown();
+
+        assertThat(scriptCalls).isEmpty();
+        assertThat(released).isEmpty();
+    }
+
+    @Test
+    void everyCallerOfAFailedBatchGetsTheFailure() {
+        coalescer = coalescer((productId, quantities) -> {
+            throw new IllegalStateException("script failed");
+        }, 50_000, 64, 5_000);
+
+        List<CompletableFuture<BatchReservationResult.ItemResult>> calls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> coalescer.reserve(PRODUCT_ID, 1)));
+        }
+
+        for (CompletableFuture<BatchReservationResult.ItemResult> call : calls) {
+            assertThatThrownBy(call::join)
+                    .hasRootCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("script failed");
+        }
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTheWindow() {
+        List<List<Integer>> scriptCalls = new CopyOnWriteArrayList<>();
+        coalescer = coalescer((productId, quantities) -> {
+            scriptCalls.add(List.copyOf(quantities));
+            return grantAll(productId, quantities);
+        }, TimeUnit.SECONDS.toMicros(30), 2, 5_000);
+
+        CompletableFuture<BatchReservationResult.ItemResult> first = CompletableFuture.supplyAsync(() -> coalescer.reserve(PRODUCT_ID, 1));
+        CompletableFuture<BatchReservationResult.ItemResult> second = CompletableFuture.supplyAsync(() -> coalescer.reserve(PRODUCT_ID, 2));
+
+        assertThat(first.orTimeout(2, TimeUnit.SECONDS).join().getRequestedQuantity()).isEqualTo(1);
+        assertThat(second.orTimeout(2, TimeUnit.SECONDS).join().getRequestedQuantity()).isEqualTo(2);
+        assertThat(scriptCalls).hasSize(1);
+        assertThat(scriptCalls.get(0)).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void shutdownFlushesBatchesStillCollecting() throws Exception {
+        coalescer = coalescer(ReservationCoalescerTest::grantAll, TimeUnit.SECONDS.toMicros(30), 64, 10_000);
+
+        CompletableFuture<BatchReservationResult.ItemResult> call = CompletableFuture.supplyAsync(() -> coalescer.reserve(PRODUCT_ID, 1));
+        // Give the call time to join the open batch
+        TimeUnit.MILLISECONDS.sleep(200);
+        coalescer.shutdown();
+
+        assertThat(call.orTimeout(2, TimeUnit.SECONDS).join().getStatus()).isEqualTo(BatchReservationResult.ItemStatus.AVAILABLE);
+    }
+
+    private ReservationCoalescer coalescer(ReservationCoalescer.BatchReserver reserver, long windowMicros,
+                                           int maxBatchSize, long timeoutMs) {
+        return new ReservationCoalescer(reserver, (productId, quantity) -> released.merge(productId, quantity, Integer::sum),
+                windowMicros, maxBatchSize, 2, timeoutMs, new SimpleMeterRegistry());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private void awaitUnblock() {
+        try {
+            unblock.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<BatchReservationResult.ItemResult> grantAll(Long productId, List<Integer> quantities) {
+        List<BatchReservationResult.ItemResult> results = new ArrayList<>(quantities.size());
+        for (Integer quantity : quantities) {
+            results.add(new BatchReservationResult.ItemResult(productId, quantity, BatchReservationResult.ItemStatus.AVAILABLE, 0L));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,341 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.config.RedisConfig;
+import com.swiftcart.inventory_service.entity.PendingStockHold;
+import com.swiftcart.inventory_service.repository.PendingStockHoldRepository;
+import com.swiftcart.inventory_service.repository.ReplenishmentReceiptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The hold scripts against a real Redis, with the database mocked: settlements racing hold creation
+// and each other, releases the database failed to record, and holds kept for retry while Redis is skipped
+@Testcontainers
+class StockHoldServiceRedisTest {
+    private static final String CANCELLED = "ORDER_CANCELLED";
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final RedisCircuitBreaker redisCircuitBreaker = mock(RedisCircuitBreaker.class);
+    private final PendingStockHoldRepository pendingStockHoldRepository = mock(PendingStockHoldRepository.class);
+    private final ReplenishmentReceiptRepository replenishmentReceiptRepository = mock(ReplenishmentReceiptRepository.class);
+    // Stands in for the receipt table; claims of a rolled-back transaction are taken out again
+    private final Set<String> receipts = ConcurrentHashMap.newKeySet();
+    private StockService stockService;
+    private StockHoldService stockHoldService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        RedisConfig config = new RedisConfig();
+        stockService = new StockService(
+                redisTemplate,
+                config.stockReservationScript(),
+                config.stockBatchReservationScript(),
+                config.ordersReservationScript(),
+                config.stockAdjustmentScript(),
+                config.coalescedReservationScript(),
+                config.stockCompareAndSetScript(),
+                new SimpleMeterRegistry(),
+                new StockReplica(16));
+        stockHoldService = stockHoldService(config.createHoldsScript(), Duration.ofSeconds(30));
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+        when(replenishmentReceiptRepository.claimNew(anyCollection())).thenAnswer(invocation -> {
+            Set<String> claimed = new LinkedHashSet<>();
+            for (String receipt : invocation.<Collection<String>>getArgument(0)) {
+                if (receipts.add(receipt)) {
+                    claimed.add(receipt);
+                }
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        receipts.removeAll(claimed);
+                    }
+                }
+            });
+            return claimed;
+        });
+    }
+
+    @Test
+    void releaseGivesStockBackAndIsRecordedOnce() {
+        stockService.loadStock(Map.of(1L, 7), true);
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+
+        stockHoldService.release(List.of(100L), CANCELLED);
+        stockHoldService.release(List.of(100L), CANCELLED);
+
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+        verify(inventoryService).recordStockReleased(Map.of(100L, Map.of(1L, 3)), Map.of(1L, 3), CANCELLED);
+        assertThat(unrecordedReleases()).isZero();
+    }
+
+    @Test
+    void confirmBeforeTheHoldIsCreatedKeepsTheStock() {
+        stockService.loadStock(Map.of(1L, 7), true);
+
+        stockHoldService.confirm(List.of(100L));
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        expireAll();
+        stockHoldService.sweepExpired();
+
+        assertThat(redisTemplate.hasKey(StockHoldService.HOLD_KEY_PREFIX + 100)).isFalse();
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 7L);
+        verify(inventoryService, never()).recordStockReleased(anyMap(), anyMap(), anyString());
+    }
+
+    @Test
+    void releaseBeforeTheHoldIsCreatedGivesTheStockBackOnTheNextSweep() {
+        stockService.loadStock(Map.of(1L, 7), true);
+
+        stockHoldService.release(List.of(100L), CANCELLED);
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        stockHoldService.sweepExpired();
+
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+        verify(inventoryService).recordStockReleased(Map.of(100L, Map.of(1L, 3)), Map.of(1L, 3), StockHoldService.REASON_EXPIRED);
+    }
+
+    @Test
+    void holdCreationRetriedAfterSettlementIsNotRecreated() {
+        stockService.loadStock(Map.of(1L, 7), true);
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        stockHoldService.release(List.of(100L), CANCELLED);
+
+        // A retry of the same creation, e.g. a pending hold another instance still had
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        expireAll();
+        stockHoldService.sweepExpired();
+
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+        verify(inventoryService, times(1)).recordStockReleased(anyMap(), anyMap(), anyString());
+    }
+
+    @Test
+    void racingReleasesAndSweepsSettleEachHoldOnce() throws Exception {
+        int orders = 200;
+        stockService.loadStock(Map.of(1L, 0), true);
+        List<Long> orderIds = new ArrayList<>();
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            orderIds.add(orderId);
+            stockHoldService.onStockReserved(reserved(orderId, Map.of(1L, 1)));
+        }
+        expireAll();
+        AtomicInteger recordedOrders = new AtomicInteger();
+        doAnswer(invocation -> recordedOrders.addAndGet(invocation.<Map<?, ?>>getArgument(0).size()))
+                .when(inventoryService).recordStockReleased(anyMap(), anyMap(), anyString());
+
+        ExecutorService settlers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Object>> settlements = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                settlements.add(() -> {
+                    stockHoldService.release(orderIds, CANCELLED);
+                    return null;
+                });
+                settlements.add(() -> {
+                    stockHoldService.sweepExpired();
+                    return null;
+                });
+            }
+            for (Future<Object> settled : settlers.invokeAll(settlements)) {
+                settled.get();
+            }
+        } finally {
+            settlers.shutdownNow();
+        }
+
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, (long) orders);
+        assertThat(recordedOrders).hasValue(orders);
+        assertThat(unrecordedReleases()).isZero();
+    }
+
+    @Test
+    void releaseTheDatabaseFailedToRecordIsRetriedBySweeper() {
+        stockHoldService = stockHoldService(new RedisConfig().createHoldsScript(), Duration.ZERO);
+        stockService.loadStock(Map.of(1L, 7), true);
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        doThrow(new DataAccessResourceFailureException("database down")).doNothing()
+                .when(inventoryService).recordStockReleased(anyMap(), anyMap(), anyString());
+
+        stockHoldService.release(List.of(100L), CANCELLED);
+
+        // Redis gave the stock back right away; the database write is kept for the sweeper
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+        assertThat(unrecordedReleases()).isEqualTo(1L);
+
+        stockHoldService.sweepExpired();
+
+        verify(inventoryService, times(2)).recordStockReleased(Map.of(100L, Map.of(1L, 3)), Map.of(1L, 3), CANCELLED);
+        assertThat(unrecordedReleases()).isZero();
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+    }
+
+    @Test
+    void retriedReleaseAlreadyInTheDatabaseIsNotRecordedAgain() {
+        stockHoldService = stockHoldService(new RedisConfig().createHoldsScript(), Duration.ZERO);
+        stockService.loadStock(Map.of(1L, 7), true);
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+        // As if an earlier attempt committed but could not mark the release as recorded in Redis
+        receipts.add(StockHoldService.RELEASE_RECEIPT_PREFIX + 100);
+
+        stockHoldService.release(List.of(100L), CANCELLED);
+
+        verify(inventoryService, never()).recordStockReleased(anyMap(), anyMap(), anyString());
+        assertThat(unrecordedReleases()).isZero();
+    }
+
+    @Test
+    void holdsAreKeptInTheDatabaseWhileRedisIsSkipped() {
+        when(redisCircuitBreaker.allowRequest()).thenReturn(false);
+        stockService.loadStock(Map.of(1L, 7, 2L, 5), true);
+        StockReservedEvent event = reserved(100L, Map.of(1L, 3));
+
+        stockHoldService.onStockReservedBeforeCommit(event);
+        stockHoldService.onStockReserved(event);
+
+        verify(pendingStockHoldRepository, times(2)).insertAll(argThat(holds -> holds.size() == 1
+                && holds.iterator().next().getOrderId() == 100L && holds.iterator().next().getItems().equals("1:3")));
+        assertThat(redisTemplate.hasKey(StockHoldService.HOLD_KEY_PREFIX + 100)).isFalse();
+
+        when(redisCircuitBreaker.allowRequest()).thenReturn(true);
+        when(pendingStockHoldRepository.claimBatch(anyInt())).thenReturn(
+                List.of(new PendingStockHold(100L, System.currentTimeMillis() + 60_000, "1:3,2:1")), List.of());
+        stockHoldService.sweepExpired();
+
+        verify(pendingStockHoldRepository).deleteAllByIdInBatch(List.of(100L));
+        assertThat(redisTemplate.opsForHash().entries(StockHoldService.HOLD_KEY_PREFIX + 100))
+                .containsEntry(StockService.stockKey(1L), "3")
+                .containsEntry(StockService.stockKey(2L), "1");
+    }
+
+    @Test
+    void holdsTheScriptFailedToCreateAreKeptForRetry() {
+        stockHoldService = stockHoldService(new DefaultRedisScript<>("return redis.error_reply('create failed')", Long.class),
+                Duration.ofSeconds(30));
+
+        stockHoldService.onStockReserved(reserved(100L, Map.of(1L, 3)));
+
+        verify(redisCircuitBreaker).recordFailure(any());
+        verify(pendingStockHoldRepository).insertAll(argThat(holds -> holds.size() == 1));
+    }
+
+    @Test
+    void pendingHoldsStayWhenRedisFailsToCreateThem() {
+        stockHoldService = stockHoldService(new DefaultRedisScript<>("return redis.error_reply('create failed')", Long.class),
+                Duration.ofSeconds(30));
+        when(pendingStockHoldRepository.claimBatch(anyInt())).thenReturn(
+                List.of(new PendingStockHold(100L, System.currentTimeMillis() + 60_000, "1:3")));
+
+        stockHoldService.sweepExpired();
+
+        verify(pendingStockHoldRepository, never()).deleteAllByIdInBatch(any());
+        verify(redisCircuitBreaker).recordFailure(any());
+    }
+
+    private StockHoldService stockHoldService(DefaultRedisScript<Long> createHoldsScript, Duration recordRetryDelay) {
+        return new StockHoldService(
+                redisTemplate,
+                createHoldsScript,
+                new RedisConfig().settleHoldsScript(),
+                stockService,
+                inventoryService,
+                redisCircuitBreaker,
+                pendingStockHoldRepository,
+                replenishmentReceiptRepository,
+                new NoOpTransactionManager(),
+                Duration.ofMinutes(15),
+                recordRetryDelay,
+                500,
+                20,
+                new SimpleMeterRegistry());
+    }
+
+    // Moves every hold's deadline to the past, for the next sweep to expire it
+    private static void expireAll() {
+        byte[] index = StockHoldService.EXPIRY_KEY.getBytes(StandardCharsets.UTF_8);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Set<byte[]> orderIds = connection.zSetCommands().zRange(index, 0, -1);
+            if (orderIds != null) {
+                orderIds.forEach(orderId -> connection.zSetCommands().zAdd(index, 0, orderId));
+            }
+        }
+    }
+
+    private static long unrecordedReleases() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long count = connection.zSetCommands().zCard(StockHoldService.UNRECORDED_KEY.getBytes(StandardCharsets.UTF_8));
+            return count == null ? 0 : count;
+        }
+    }
+
+    private static StockReservedEvent reserved(Long orderId, Map<Long, Integer> quantities) {
+        return new StockReservedEvent(Map.of(orderId, quantities));
+    }
+}
@@ -0,0 +1,91 @@
+package com.swiftcart.inventory_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Lookups start as optimistic reads, so they run while the writer grows the maps underneath them
+class StockReplicaTest {
+
+    @Test
+    void lookupReportsUnknownAndAgeForMissingProducts() {
+        StockReplica replica = new StockReplica(16);
+        replica.update(1, 5);
+
+        int[] quantities = new int[2];
+        long[] ages = new long[2];
+        replica.lookup(new long[]{1, 2}, quantities, ages);
+
+        assertThat(quantities).containsExactly(5, StockReplica.UNKNOWN);
+        assertThat(ages[0]).isLessThan(1_000);
+        assertThat(ages[1]).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void lookupsDuringResizesOnlySeeWrittenQuantities() throws Exception {
+        // Sized for 16, so the writer forces a dozen resizes of both maps
+        StockReplica replica = new StockReplica(16);
+        int products = 200_000;
+        AtomicLong written = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean();
+
+        ExecutorService threads = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> writer = threads.submit(() -> {
+                for (long productId = 1; productId <= products; productId++) {
+                    replica.update(productId, quantityOf(productId));
+                    written.set(productId);
+                }
+                done.set(true);
+            });
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                long seed = r;
+                readers.add(threads.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    long[] productIds = new long[64];
+                    int[] quantities = new int[productIds.length];
+                    long[] ages = new long[productIds.length];
+                    long lookups = 0;
+                    while (!done.get()) {
+                        long known = written.get();
+                        if (known == 0) {
+                            continue;
+                        }
+                        for (int i = 0; i < productIds.length; i++) {
+                            productIds[i] = random.nextLong(1, known + 1);
+                        }
+                        replica.lookup(productIds, quantities, ages);
+                        for (int i = 0; i < productIds.length; i++) {
+                            assertThat(quantities[i]).isEqualTo(quantityOf(productIds[i]));
+                        }
+                        lookups++;
+                    }
+                    return lookups;
+                }));
+            }
+
+            writer.get(60, TimeUnit.SECONDS);
+            for (Future<Long> reader : readers) {
+                assertThat(reader.get(60, TimeUnit.SECONDS)).isPositive();
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertThat(replica.size()).isEqualTo(products);
+    }
+
+    private static int quantityOf(long productId) {
+        return (int) (productId % 1_000);
+    }
+}
@@ -0,0 +1,221 @@
+package com.swiftcart.inventory_service.service;
+
+import com.swiftcart.inventory_service.config.RedisConfig;
+import com.swiftcart.inventory_service.dto.OrderCreatedEvent;
+import com.swiftcart.inventory_service.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// The reservation scripts against a real Redis: all-or-nothing batches (journaled in write-behind
+// mode), multi-order batches, coalesced reservations and the resync after an outage
+@Testcontainers
+class StockServiceRedisTest {
+    private static final String JOURNAL = "stock:deltas";
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private StockService stockService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        stockService = stockService(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockService.stopReservationCoalescer();
+    }
+
+    @Test
+    void reserveStockBatchDecrementsEveryItem() {
+        stockService.loadStock(Map.of(1L, 10, 2L, 5), true);
+
+        BatchReservationResult result = stockService.reserveStockBatch(List.of(item(1L, 3), item(2L, 5)));
+
+        assertThat(result.isReserved()).isTrue();
+        assertThat(result.getItems()).extracting(BatchReservationResult.ItemResult::getQuantity).containsExactly(7L, 0L);
+        assertThat(stockService.readStock(List.of(1L, 2L))).containsEntry(1L, 7L).containsEntry(2L, 0L);
+    }
+
+    @Test
+    void reserveStockBatchTakesNothingWhenOneItemIsShort() {
+        stockService.loadStock(Map.of(1L, 10, 2L, 2), true);
+
+        BatchReservationResult result = stockService.reserveStockBatch(List.of(item(1L, 3), item(2L, 5)));
+
+        assertThat(result.isReserved()).isFalse();
+        assertThat(result.getFirstFailure().getProductId()).isEqualTo(2L);
+        assertThat(result.getFirstFailure().getStatus()).isEqualTo(BatchReservationResult.ItemStatus.INSUFFICIENT);
+        assertThat(stockService.readStock(List.of(1L, 2L))).containsEntry(1L, 10L).containsEntry(2L, 2L);
+    }
+
+    @Test
+    void reserveStockBatchSumsRepeatedProducts() {
+        stockService.loadStock(Map.of(1L, 10), true);
+
+        BatchReservationResult result = stockService.reserveStockBatch(List.of(item(1L, 6), item(1L, 6)));
+
+        assertThat(result.isReserved()).isFalse();
+        assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 10L);
+    }
+
+    @Test
+    void reserveStockBatchReportsProductsMissingFromRedis() {
+        stockService.loadStock(Map.of(1L, 10), true);
+
+        BatchReservationResult result = stockService.reserveStockBatch(List.of(item(1L, 3), item(3L, 1)));
+
+        assertThat(result.isReserved()).isFalse();
+        assertThat(result.getFirstFailure().getStatus()).isEqualTo(BatchReservationResult.ItemStatus.NOT_FOUND);
+        assertThat(result.getMissingProductIds()).containsExactly(3L);
+        assertThat(stockService.readStock(List.of(1L, 3L))).containsOnlyKeys(1L).containsEntry(1L, 10L);
+    }
+
+    @Test
+    void reserveStockBatchJournalsOnlyWhatItTook() {
+        stockService = stockService(true);
+        stockService.loadStock(Map.of(1L, 10, 2L, 2), true);
+
+        stockService.reserveStockBatch(List.of(item(1L, 3), item(2L, 5)));
+        assertThat(redisTemplate.opsForStream().size(JOURNAL)).isZero();
+
+        stockService.reserveStockBatch(List.of(item(1L, 3), item(2L, 2)));
+        assertThat(redisTemplate.opsForStream().size(JOURNAL)).isEqualTo(2L);
+    }
+
+    @Test
+    void reserveStockForOrdersReservesEachOrderInTurn() {
+        stockService.loadStock(Map.of(1L, 5, 2L, 4), true);
+
+        List<BatchReservationResult> results = stockService.reserveStockForOrders(List.of(
+                List.of(item(1L, 3)),
+                List.of(item(1L, 3)),
+                List.of(item(1L, 2), item(2L, 1)),
+                List.of(item(2L, 1), item(4L, 1))));
+
+        assertThat(results).extracting(BatchReservationResult::isReserved).containsExactly(true, false, true, false);
+        assertThat(results.get(1).getFirstFailure().getQuantity()).isEqualTo(2L);
+        assertThat(results.get(3).getMissingProductIds()).containsExactly(4L);
+        // The rejected orders took nothing, not even their available items
+        assertThat(stockService.readStock(List.of(1L, 2L))).containsEntry(1L, 0L).containsEntry(2L, 3L);
+    }
+
+    @Test
+    void coalescedReservationsNeverOversell() throws Exception {
+        stockService = stockService(false, true);
+        stockService.loadStock(Map.of(1L, 5), true);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> reservations = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reservations.add(() -> stockService.reserveStockBatch(List.of(item(1L, 2))).isReserved());
+            }
+            int reserved = 0;
+            for (Future<Boolean> result : callers.invokeAll(reservations)) {
+                reserved += result.get() ? 1 : 0;
+            }
+            assertThat(reserved).isEqualTo(2);
+            assertThat(stockService.readStock(List.of(1L))).containsEntry(1L, 1L);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void recoveryResyncKeepsReservationsMadeMeanwhile() {
+        stockService.loadStock(Map.of(1L, 10, 2L, 4), true);
+        StockWarmupService warmup = new StockWarmupService(mock(InventoryRepository.class), stockService,
+                mock(ProductCatalogCache.class), mock(PlatformTransactionManager.class), false, 1, 5_000);
+        // Another instance, its breaker already closed, reserves before this one has resynced
+        stockService.reserveStockBatch(List.of(item(1L, 3)));
+        // This instance took 2 of product 1 in the database only, and product 2 was replenished by 6
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        deltas.put(1L, -2);
+        deltas.put(2L, 6);
+
+        warmup.onRedisRecovered(new RedisRecoveredEvent(deltas));
+
+        assertThat(deltas).isEmpty();
+        assertThat(stockService.readStock(List.of(1L, 2L))).containsEntry(1L, 5L).containsEntry(2L, 10L);
+        // Not journaled: the database already has these
+        assertThat(redisTemplate.opsForStream().size(JOURNAL)).isZero();
+    }
+
+    private StockService stockService(boolean writeBehind) {
+        return stockService(writeBehind, false);
+    }
+
+    private StockService stockService(boolean writeBehind, boolean coalescing) {
+        RedisConfig config = new RedisConfig();
+        StockService service = new StockService(
+                redisTemplate,
+                config.stockReservationScript(),
+                config.stockBatchReservationScript(),
+                config.ordersReservationScript(),
+                config.stockAdjustmentScript(),
+                config.coalescedReservationScript(),
+                config.stockCompareAndSetScript(),
+                new SimpleMeterRegistry(),
+                new StockReplica(16));
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", writeBehind);
+        ReflectionTestUtils.setField(service, "writeBehindStream", JOURNAL);
+        ReflectionTestUtils.setField(service, "coalescingEnabled", coalescing);
+        ReflectionTestUtils.setField(service, "coalescingWindowMicros", 5_000L);
+        ReflectionTestUtils.setField(service, "coalescingMaxBatchSize", 64);
+        ReflectionTestUtils.setField(service, "coalescingFlushThreads", 2);
+        ReflectionTestUtils.setField(service, "coalescingTimeoutMs", 5_000L);
+        service.startReservationCoalescer();
+        return service;
+    }
+
+    private static OrderCreatedEvent.OrderItem item(Long productId, int quantity) {
+        return new OrderCreatedEvent.OrderItem(productId, quantity);
+    }
+}